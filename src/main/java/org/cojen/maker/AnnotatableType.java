@@ -263,6 +263,11 @@ final class AnnotatableType extends BaseType {
         return mBase.fields();
     }
 
+    @Override
+    Field field(String name) {
+        return mBase.field(name);
+    }
+
     @Override
     Field defineField(int flags, BaseType type, String name) {
         return mBase.defineField(flags, type, name);
@@ -278,6 +283,16 @@ final class AnnotatableType extends BaseType {
         return mBase.methods();
     }
 
+    @Override
+    Method method(MethodKey key) {
+        return mBase.method(key);
+    }
+
+    @Override
+    MethodIndex methodIndex(String name) {
+        return mBase.methodIndex(name);
+    }
+
     @Override
     Set<Method> findMethods(String methodName, BaseType[] params, int inherit, int staticAllowed,
                             BaseType specificReturnType, BaseType[] specificParamTypes)
@@ -0,0 +1,215 @@
+/*
+ *  Copyright 2026 Cojen.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.cojen.maker;
+
+import java.lang.invoke.ConstantBootstraps;
+
+import java.lang.reflect.Array;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Supports primitive array constants, which are encoded into the class file as string
+ * constants. The class being made is given a decoder method for each element type, and each
+ * array constant is decoded by a dynamic constant which invokes it. The decoder only depends
+ * on {@code java.lang} classes, and so external classes are supported.
+ *
+ * @author Brian S. O'Neill
+ * @see MethodMaker#arrayConstant
+ */
+final class ArrayConstants {
+    // The maximum length of a modified UTF-8 encoded string constant.
+    private static final int MAX_UTF_LENGTH = 65535;
+
+    /**
+     * @param array a primitive array
+     * @return an unmodifiable variable which refers to the decoded array
+     */
+    static Variable load(TheMethodMaker mm, Object array) {
+        Class<?> elementType;
+        if (array == null || (elementType = array.getClass().componentType()) == null
+            || !elementType.isPrimitive())
+        {
+            throw new IllegalArgumentException("Not a primitive array: " + array);
+        }
+
+        Class<?> arrayType = array.getClass();
+        var cm = (TheClassMaker) mm.classMaker();
+        String name = "array$" + elementType.getName();
+
+        if (cm.mArrayDecoders == null) {
+            cm.mArrayDecoders = new HashSet<>();
+        }
+        if (cm.mArrayDecoders.add(elementType)) {
+            makeDecoder(cm, arrayType, name);
+        }
+
+        List<String> chunks = encode(array);
+
+        var args = new Object[2 + chunks.size()];
+        args[0] = mm.var(cm).methodHandle(arrayType, name, int.class, String[].class);
+        args[1] = Array.getLength(array);
+        for (int i=0; i<chunks.size(); i++) {
+            args[2 + i] = chunks.get(i);
+        }
+
+        return mm.var(ConstantBootstraps.class).condy("invoke", args).invoke(arrayType, "array");
+    }
+
+    /**
+     * Encodes an array into 16-bit chars, which are split into strings that don't exceed
+     * the constant pool limit. Elements wider than a char are encoded big-endian, and
+     * floating point elements are encoded by their raw bits. Byte and boolean elements are
+     * packed two per char.
+     */
+    static List<String> encode(Object array) {
+        char[] chars;
+
+        if (array instanceof byte[] a) {
+            chars = new char[(a.length + 1) >> 1];
+            for (int i=0; i<a.length; i++) {
+                chars[i >> 1] |= (char) ((a[i] & 0xff) << ((~i & 1) << 3));
+            }
+        } else if (array instanceof boolean[] a) {
+            chars = new char[(a.length + 1) >> 1];
+            for (int i=0; i<a.length; i++) {
+                if (a[i]) {
+                    chars[i >> 1] |= (char) (1 << ((~i & 1) << 3));
+                }
+            }
+        } else if (array instanceof char[] a) {
+            chars = a;
+        } else if (array instanceof short[] a) {
+            chars = new char[a.length];
+            for (int i=0; i<a.length; i++) {
+                chars[i] = (char) a[i];
+            }
+        } else if (array instanceof int[] a) {
+            chars = new char[a.length << 1];
+            for (int i=0; i<a.length; i++) {
+                putInt(chars, i << 1, a[i]);
+            }
+        } else if (array instanceof float[] a) {
+            chars = new char[a.length << 1];
+            for (int i=0; i<a.length; i++) {
+                putInt(chars, i << 1, Float.floatToRawIntBits(a[i]));
+            }
+        } else if (array instanceof long[] a) {
+            chars = new char[a.length << 2];
+            for (int i=0; i<a.length; i++) {
+                putLong(chars, i << 2, a[i]);
+            }
+        } else if (array instanceof double[] a) {
+            chars = new char[a.length << 2];
+            for (int i=0; i<a.length; i++) {
+                putLong(chars, i << 2, Double.doubleToRawLongBits(a[i]));
+            }
+        } else {
+            throw new IllegalArgumentException("Not a primitive array: " + array);
+        }
+
+        var chunks = new ArrayList<String>();
+
+        int start = 0, utfLength = 0;
+        for (int i=0; i<chars.length; i++) {
+            char c = chars[i];
+            int len = (c >= 0x0001 && c <= 0x007f) ? 1 : (c <= 0x07ff ? 2 : 3);
+            if (utfLength + len > MAX_UTF_LENGTH) {
+                chunks.add(new String(chars, start, i - start));
+                start = i;
+                utfLength = 0;
+            }
+            utfLength += len;
+        }
+
+        if (start < chars.length) {
+            chunks.add(new String(chars, start, chars.length - start));
+        }
+
+        return chunks;
+    }
+
+    private static void putInt(char[] chars, int pos, int v) {
+        chars[pos] = (char) (v >>> 16);
+        chars[pos + 1] = (char) v;
+    }
+
+    private static void putLong(char[] chars, int pos, long v) {
+        putInt(chars, pos, (int) (v >>> 32));
+        putInt(chars, pos + 2, (int) v);
+    }
+
+    /**
+     * Adds a private static method which decodes an array: {@code T[] name(int length,
+     * String... chunks)}
+     */
+    private static void makeDecoder(ClassMaker cm, Class<?> arrayType, String name) {
+        Class<?> elementType = arrayType.componentType();
+
+        MethodMaker mm = cm.addMethod(arrayType, name, int.class, String[].class)
+            .private_().static_().synthetic().varargs();
+
+        var length = mm.param(0);
+        var str = mm.var(String.class).invoke("join", "", mm.param(1));
+        var array = mm.new_(arrayType, length);
+        var ix = mm.var(int.class).set(0);
+
+        Label start = mm.label().here();
+        Label end = mm.label();
+        ix.ifGe(length, end);
+
+        Variable value;
+        if (elementType == byte.class || elementType == boolean.class) {
+            var c = str.invoke("charAt", ix.ushr(1)).cast(int.class);
+            // Even elements are encoded in the high byte.
+            value = c.shr(ix.and(1).xor(1).shl(3)).cast(byte.class);
+            if (elementType == boolean.class) {
+                value = value.ne(0);
+            }
+        } else if (elementType == char.class) {
+            value = str.invoke("charAt", ix);
+        } else if (elementType == short.class) {
+            value = str.invoke("charAt", ix).cast(short.class);
+        } else if (elementType == int.class || elementType == float.class) {
+            value = decodeInt(str, ix.shl(1));
+            if (elementType == float.class) {
+                value = mm.var(Float.class).invoke("intBitsToFloat", value);
+            }
+        } else {
+            var pos = ix.shl(2);
+            value = decodeInt(str, pos).cast(long.class).shl(32)
+                .or(decodeInt(str, pos.add(2)).cast(long.class).and(0xffff_ffffL));
+            if (elementType == double.class) {
+                value = mm.var(Double.class).invoke("longBitsToDouble", value);
+            }
+        }
+
+        array.aset(ix, value);
+        ix.inc(1);
+        mm.goto_(start);
+
+        end.here();
+        mm.return_(array);
+    }
+
+    private static Variable decodeInt(Variable str, Variable pos) {
+        return str.invoke("charAt", pos).cast(int.class).shl(16)
+            .or(str.invoke("charAt", pos.add(1)).cast(int.class));
+    }
+}
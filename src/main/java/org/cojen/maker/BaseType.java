@@ -27,6 +27,7 @@ import java.lang.reflect.Modifier;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -35,10 +36,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.WeakHashMap;
 
 import java.util.concurrent.ConcurrentHashMap;
 
+import java.util.concurrent.locks.ReentrantLock;
+
+import java.util.function.Consumer;
+
 /**
  * 
  *
@@ -121,9 +125,16 @@ abstract class BaseType implements Type, Typed {
      * @param type class name, primitive type, or type descriptor
      */
     static BaseType from(ClassLoader loader, String type) {
-        ConcurrentHashMap<Object, BaseType> cache = cache(loader);
+        ConcurrentHashMap<String, BaseType> cache = cache(loader);
         BaseType t = cache.get(type);
-        return t != null ? t : cachePut(cache, type, find(loader, type));
+        if (t == null) {
+            t = find(loader, type);
+            BaseType existing = cache.putIfAbsent(type, t);
+            if (existing != null) {
+                t = existing;
+            }
+        }
+        return t;
     }
 
     private static BaseType find(ClassLoader loader, String type) {
@@ -182,9 +193,15 @@ abstract class BaseType implements Type, Typed {
     }
 
     static BaseType from(Class type) {
-        ConcurrentHashMap<Object, BaseType> cache = cache(type.getClassLoader());
-        BaseType t = cache.get(type);
-        return t != null ? t : cachePut(cache, type, find(type));
+        ClassValue<SoftReference<BaseType>> cache = cClassCache;
+        while (true) {
+            BaseType t = cache.get(type).get();
+            if (t != null) {
+                return t;
+            }
+            // The soft reference was cleared, so remove it and compute a new one.
+            cache.remove(type);
+        }
     }
 
     private static BaseType find(Class type) {
@@ -499,13 +516,20 @@ abstract class BaseType implements Type, Typed {
         return Collections.emptyMap();
     }
 
+    /**
+     * Returns a field declared in this type, or null if not found.
+     */
+    Field field(String name) {
+        return fields().get(name);
+    }
+
     /**
      * Tries to find a field in this type or in a super type.
      */
     final Field findField(String name) {
         BaseType type = this;
         do {
-            Field field = type.fields().get(name);
+            Field field = type.field(name);
             if (field != null) {
                 return field;
             }
@@ -531,6 +555,21 @@ abstract class BaseType implements Type, Typed {
         return Collections.emptyMap();
     }
 
+    /**
+     * Returns a method or constructor declared in this type, or null if not found.
+     */
+    Method method(MethodKey key) {
+        return methods().get(key);
+    }
+
+    /**
+     * Returns an index of the methods declared in this type which have the given name, or
+     * null if none.
+     */
+    MethodIndex methodIndex(String name) {
+        return null;
+    }
+
     Map<MethodKey, Method> allMethods() {
         var map = new HashMap<MethodKey, Method>();
         allMethods(map);
@@ -870,6 +909,10 @@ abstract class BaseType implements Type, Typed {
             return desc;
         }
 
+        MethodKey key() {
+            return new MethodKey(mReturnType, name(), mParamTypes);
+        }
+
         /**
          * Returns a string which matches how the method would appear in a Java source file,
          * sans parameter names.
@@ -899,14 +942,14 @@ abstract class BaseType implements Type, Typed {
             final var key = new MethodKey(returnType(), name(), paramTypes());
 
             for (BaseType s = type.superType(); s != null; s = s.superType()) {
-                Method parent = s.methods().get(key);
+                Method parent = s.method(key);
                 if (parent != null && parent.allowHiddenOverride()) {
                     return parent;
                 }
             }
 
             for (BaseType iface : type.interfaces()) {
-                Method parent = iface.methods().get(key);
+                Method parent = iface.method(key);
                 if (parent != null && parent.allowHiddenOverride()) {
                     return parent;
                 }
@@ -995,30 +1038,181 @@ abstract class BaseType implements Type, Typed {
         }
     }
 
-    private static final Map<ClassLoader, SoftReference<ConcurrentHashMap<Object, BaseType>>>
-        cCacheMap = new WeakHashMap<>();
+    /**
+     * Index of the methods declared in a type which share the same name, organized by
+     * parameter count. Methods whose last parameter is an array are also tracked separately,
+     * because they might accept a variable number of arguments. The varargs flag itself isn't
+     * examined when the index is made, because it can be changed afterwards.
+     */
+    static final class MethodIndex {
+        static final MethodIndex EMPTY = new MethodIndex(new Method[0][], new Method[0]);
+
+        private static final Method[] NO_METHODS = new Method[0];
+
+        private final Method[][] mByParamCount;
+        private final Method[] mArrayTail;
+
+        private MethodIndex(Method[][] byParamCount, Method[] arrayTail) {
+            mByParamCount = byParamCount;
+            mArrayTail = arrayTail;
+        }
+
+        /**
+         * @return EMPTY if no methods have the given name
+         */
+        static MethodIndex make(Collection<Method> methods, String name) {
+            int maxCount = -1;
+            int arrayTailCount = 0;
+
+            for (Method m : methods) {
+                if (m.name().equals(name)) {
+                    BaseType[] paramTypes = m.paramTypes();
+                    maxCount = Math.max(maxCount, paramTypes.length);
+                    if (hasArrayTail(paramTypes)) {
+                        arrayTailCount++;
+                    }
+                }
+            }
+
+            if (maxCount < 0) {
+                return EMPTY;
+            }
+
+            var counts = new int[maxCount + 1];
+            for (Method m : methods) {
+                if (m.name().equals(name)) {
+                    counts[m.paramTypes().length]++;
+                }
+            }
+
+            var byParamCount = new Method[maxCount + 1][];
+            for (int i=0; i<counts.length; i++) {
+                byParamCount[i] = counts[i] == 0 ? NO_METHODS : new Method[counts[i]];
+                counts[i] = 0;
+            }
+
+            var arrayTail = arrayTailCount == 0 ? NO_METHODS : new Method[arrayTailCount];
+            arrayTailCount = 0;
 
-    private static synchronized ConcurrentHashMap<Object, BaseType> cache(ClassLoader loader) {
-        SoftReference<ConcurrentHashMap<Object, BaseType>> cacheRef = cCacheMap.get(loader);
-        ConcurrentHashMap<Object, BaseType> cache;
-        if (cacheRef == null || (cache = cacheRef.get()) == null) {
-            cache = new ConcurrentHashMap<>();
-            cCacheMap.put(loader, new SoftReference<>(cache));
+            for (Method m : methods) {
+                if (m.name().equals(name)) {
+                    BaseType[] paramTypes = m.paramTypes();
+                    int count = paramTypes.length;
+                    byParamCount[count][counts[count]++] = m;
+                    if (hasArrayTail(paramTypes)) {
+                        arrayTail[arrayTailCount++] = m;
+                    }
+                }
+            }
+
+            return new MethodIndex(byParamCount, arrayTail);
+        }
+
+        private static boolean hasArrayTail(BaseType[] paramTypes) {
+            return paramTypes.length != 0 && paramTypes[paramTypes.length - 1].isArray();
+        }
+
+        /**
+         * Returns all the methods which have exactly the given number of parameters.
+         */
+        Method[] withParamCount(int count) {
+            return count < mByParamCount.length ? mByParamCount[count] : NO_METHODS;
         }
-        return cache;
+
+        void forEach(Consumer<Method> action) {
+            for (Method[] methods : mByParamCount) {
+                for (Method m : methods) {
+                    action.accept(m);
+                }
+            }
+        }
+
+        /**
+         * Returns all the methods whose last parameter is an array, which might be varargs.
+         */
+        Method[] withArrayTail() {
+            return mArrayTail;
+        }
+    }
+
+    // Class-keyed lookups don't need to find a cache for the class loader first. Each type is
+    // softly referenced, matching the behavior of the per-loader caches.
+    private static volatile ClassValue<SoftReference<BaseType>> cClassCache = newClassCache();
+
+    private static volatile WeakIdentityMap
+        <ClassLoader, SoftReference<ConcurrentHashMap<String, BaseType>>> cCacheMap =
+        new WeakIdentityMap<>();
+
+    // WeakIdentityMap doesn't support null keys, and so the bootstrap loader needs its own
+    // cache reference.
+    private static volatile SoftReference<ConcurrentHashMap<String, BaseType>> cBootCache;
+
+    // Guards the creation of new caches.
+    private static final ReentrantLock cCacheLock = new ReentrantLock();
+
+    private static ClassValue<SoftReference<BaseType>> newClassCache() {
+        return new ClassValue<>() {
+            @Override
+            protected SoftReference<BaseType> computeValue(Class<?> type) {
+                return new SoftReference<>(find(type));
+            }
+        };
     }
 
-    private static BaseType cachePut(ConcurrentHashMap<Object, BaseType> cache,
-                                     Object key, BaseType type)
+    private static ConcurrentHashMap<String, BaseType> cache(ClassLoader loader) {
+        SoftReference<ConcurrentHashMap<String, BaseType>> cacheRef = cacheRef(loader);
+
+        ConcurrentHashMap<String, BaseType> cache;
+        if (cacheRef != null && (cache = cacheRef.get()) != null) {
+            return cache;
+        }
+
+        cCacheLock.lock();
+        try {
+            cacheRef = cacheRef(loader);
+            if (cacheRef == null || (cache = cacheRef.get()) == null) {
+                cache = new ConcurrentHashMap<>();
+                cacheRef = new SoftReference<>(cache);
+                if (loader == null) {
+                    cBootCache = cacheRef;
+                } else if (loader instanceof ClassInjector injector) {
+                    injector.mTypeCache = cacheRef;
+                } else {
+                    cCacheMap.put(loader, cacheRef);
+                }
+            }
+            return cache;
+        } finally {
+            cCacheLock.unlock();
+        }
+    }
+
+    private static SoftReference<ConcurrentHashMap<String, BaseType>> cacheRef
+        (ClassLoader loader)
     {
-        BaseType existing = cache.putIfAbsent(key, type);
-        return existing == null ? type : existing;
+        if (loader == null) {
+            return cBootCache;
+        } else if (loader instanceof ClassInjector injector) {
+            // The cached types can refer to classes which were defined by the injector, and
+            // so the cache must not be reachable from the global map. Otherwise, the classes
+            // cannot be unloaded until the soft reference is cleared.
+            return injector.mTypeCache;
+        } else {
+            return cCacheMap.get(loader);
+        }
     }
 
     // Called by InjectorTest to ensure that classes get unloaded. Soft references aren't
     // typically cleared right away.
-    static synchronized void clearCaches() {
-        cCacheMap.clear();
+    static void clearCaches() {
+        cCacheLock.lock();
+        try {
+            cClassCache = newClassCache();
+            cCacheMap = new WeakIdentityMap<>();
+            cBootCache = null;
+        } finally {
+            cCacheLock.unlock();
+        }
     }
 
     private static final class Primitive extends BaseType {
@@ -1350,6 +1544,17 @@ abstract class BaseType implements Type, Typed {
 
         private volatile ConcurrentHashMap<String, Map<FindKey, Set<Method>>> mFindMethods;
 
+        private volatile ConcurrentHashMap<String, MethodIndex> mMethodIndexes;
+
+        // Fields of a loaded class which were individually requested, before all of them
+        // were needed. Missing fields map to NO_FIELD.
+        private volatile ConcurrentHashMap<String, Object> mFieldProbes;
+
+        // Is a TypeSnapshot.Entry for a loaded class, or NO_SNAPSHOT if none.
+        private volatile Object mSnapshot;
+
+        private static final Object NO_FIELD = new Object(), NO_SNAPSHOT = new Object();
+
         /**
          * @param name can be null if desc isn't null
          * @param desc can be null if name isn't null
@@ -1548,6 +1753,59 @@ abstract class BaseType implements Type, Typed {
             return fields;
         }
 
+        @Override
+        Field field(String name) {
+            Map<String, Field> fields = mFields;
+            if (fields != null) {
+                return fields.get(name);
+            }
+
+            Class clazz = classType();
+            if (clazz == null) {
+                return fields().get(name);
+            }
+
+            // Only examine the requested field of the loaded class, to avoid resolving the
+            // types of all the other fields.
+
+            var probes = mFieldProbes;
+            if (probes == null) {
+                synchronized (this) {
+                    probes = mFieldProbes;
+                    if (probes == null) {
+                        mFieldProbes = probes = new ConcurrentHashMap<>();
+                    }
+                }
+            }
+
+            Object field = probes.get(name);
+
+            if (field == null) {
+                TypeSnapshot.Entry snapshot = snapshot(clazz);
+                if (snapshot != null) {
+                    field = NO_FIELD;
+                    for (TypeSnapshot.Member m : snapshot.fields()) {
+                        if (m.mName.equals(name)) {
+                            field = newField(clazz, m);
+                            break;
+                        }
+                    }
+                } else {
+                    try {
+                        field = newField(clazz.getDeclaredField(name));
+                    } catch (NoSuchFieldException e) {
+                        field = NO_FIELD;
+                    }
+                }
+                Object existing = probes.putIfAbsent(name, field);
+                if (existing != null) {
+                    field = existing;
+                }
+            }
+
+            return field == NO_FIELD ? null : (Field) field;
+        }
+
         @Override
         Field defineField(int flags, BaseType type, String name) {
             return defineField(false, flags, type, name);
@@ -1559,16 +1817,17 @@ abstract class BaseType implements Type, Typed {
         }
 
         private Field defineField(boolean invent, int flags, BaseType type, String name) {
+            if (invent) {
+                Field existing = field(name);
+                return existing != null ? existing : new Field(flags, type, name);
+            }
+
             Field existing;
             synchronized (this) {
                 Map<String, Field> fields = mFields;
                 if (fields == null) {
                     fields = initFields();
                 }
-                if (invent) {
-                    existing = fields.get(name);
-                    return existing != null ? existing : new Field(flags, type, name);
-                }
                 var field = new Field(flags, type, name);
                 existing = fields.putIfAbsent(name, field);
                 if (existing == null) {
@@ -1587,17 +1846,58 @@ abstract class BaseType implements Type, Typed {
 
             Class clazz = classType();
             if (clazz != null) {
-                for (var field : clazz.getDeclaredFields()) {
-                    int flags = field.getModifiers();
-                    String name = field.getName();
-                    BaseType type = from(field.getType());
-                    fields.put(name, new Field(flags, type, name));
+                var probes = mFieldProbes;
+                TypeSnapshot.Entry snapshot = snapshot(clazz);
+                if (snapshot != null) {
+                    for (TypeSnapshot.Member m : snapshot.fields()) {
+                        Object probed;
+                        if (probes != null && (probed = probes.get(m.mName)) instanceof Field f) {
+                            fields.put(m.mName, f);
+                        } else {
+                            fields.put(m.mName, newField(clazz, m));
+                        }
+                    }
+                } else {
+                    for (var field : clazz.getDeclaredFields()) {
+                        String name = field.getName();
+                        Object probed;
+                        if (probes != null && (probed = probes.get(name)) instanceof Field f) {
+                            fields.put(name, f);
+                        } else {
+                            fields.put(name, newField(field));
+                        }
+                    }
                 }
             }
 
+            mFieldProbes = null;
+
             return mFields = fields;
         }
 
+        private Field newField(java.lang.reflect.Field field) {
+            return new Field(field.getModifiers(), from(field.getType()), field.getName());
+        }
+
+        private Field newField(Class clazz, TypeSnapshot.Member m) {
+            return new Field(m.mFlags, m.types(clazz.getClassLoader())[0], m.mName);
+        }
+
+        /**
+         * Returns a snapshot entry which describes the given loaded class, or null if none.
+         */
+        private TypeSnapshot.Entry snapshot(Class clazz) {
+            Object snapshot = mSnapshot;
+            if (snapshot == null) {
+                snapshot = TypeSnapshot.find(clazz);
+                if (snapshot == null) {
+                    snapshot = NO_SNAPSHOT;
+                }
+                mSnapshot = snapshot;
+            }
+            return snapshot == NO_SNAPSHOT ? null : (TypeSnapshot.Entry) snapshot;
+        }
+
         @Override
         Map<MethodKey, Method> methods() {
             Map<MethodKey, Method> methods = mMethods;
@@ -1612,6 +1912,64 @@ abstract class BaseType implements Type, Typed {
             return methods;
         }
 
+        @Override
+        Method method(MethodKey key) {
+            Map<MethodKey, Method> methods = mMethods;
+            if (methods != null) {
+                return methods.get(key);
+            }
+
+            MethodIndex index = methodIndex(key.name);
+            if (index != null) {
+                for (Method m : index.withParamCount(key.paramTypes.length)) {
+                    if (m.returnType().equals(key.returnType)
+                        && Arrays.equals(m.paramTypes(), key.paramTypes))
+                    {
+                        return m;
+                    }
+                }
+            }
+
+            return null;
+        }
+
+        @Override
+        MethodIndex methodIndex(String name) {
+            var indexes = methodIndexes();
+
+            MethodIndex index = indexes.get(name);
+
+            if (index == null) {
+                Class clazz;
+                if (mMethods == null && (clazz = classType()) != null) {
+                    // Only examine the requested methods of the loaded class, to avoid
+                    // resolving the types of all the other methods.
+                    index = MethodIndex.make(loadMethods(clazz, name), name);
+                } else {
+                    index = MethodIndex.make(methods().values(), name);
+                }
+                MethodIndex existing = indexes.putIfAbsent(name, index);
+                if (existing != null) {
+                    index = existing;
+                }
+            }
+
+            return index == MethodIndex.EMPTY ? null : index;
+        }
+
+        private ConcurrentHashMap<String, MethodIndex> methodIndexes() {
+            var indexes = mMethodIndexes;
+            if (indexes == null) {
+                synchronized (this) {
+                    indexes = mMethodIndexes;
+                    if (indexes == null) {
+                        mMethodIndexes = indexes = new ConcurrentHashMap<>();
+                    }
+                }
+            }
+            return indexes;
+        }
+
         @Override
         Set<Method> findMethods(String methodName, BaseType[] params,
                                 int inherit, int staticAllowed,
@@ -1662,7 +2020,14 @@ abstract class BaseType implements Type, Typed {
             return results;
         }
 
-        private void uncacheFindMethod(String methodName) {
+        /**
+         * Must be called when a method is added, to discard cached results.
+         */
+        final void uncacheFindMethod(String methodName) {
+            var indexes = mMethodIndexes;
+            if (indexes != null) {
+                indexes.remove(methodName);
+            }
             var findMethods = mFindMethods;
             if (findMethods != null) {
                 findMethods.remove(methodName);
@@ -1755,54 +2120,71 @@ abstract class BaseType implements Type, Typed {
         private static void addMethods(Set<Method> methods, BaseType type, String methodName,
                                        BaseType[] params, int staticAllowed)
         {
-            outer: for (Method m : type.methods().values()) {
-                if (!m.name().equals(methodName)) {
-                    continue;
+            MethodIndex index = type.methodIndex(methodName);
+
+            if (index == null) {
+                return;
+            }
+
+            for (Method m : index.withParamCount(params.length)) {
+                if (isApplicable(m, params, staticAllowed)) {
+                    methods.add(m);
                 }
+            }
 
-                if (m.isStatic()) {
-                    if (staticAllowed < 0) {
-                        continue;
-                    }
-                } else if (staticAllowed > 0) {
-                    continue;
+            for (Method m : index.withArrayTail()) {
+                // Methods with the exact parameter count were examined by the first loop.
+                if (m.isVarargs() && m.paramTypes().length != params.length
+                    && isApplicable(m, params, staticAllowed))
+                {
+                    methods.add(m);
                 }
+            }
+        }
 
-                BaseType[] actualParams = m.paramTypes();
+        private static boolean isApplicable(Method m, BaseType[] params, int staticAllowed) {
+            if (m.isStatic()) {
+                if (staticAllowed < 0) {
+                    return false;
+                }
+            } else if (staticAllowed > 0) {
+                return false;
+            }
 
-                if (!m.isVarargs()) {
-                    if (actualParams.length != params.length) {
-                        continue;
-                    }
+            BaseType[] actualParams = m.paramTypes();
 
-                    for (int i=0; i<params.length; i++) {
-                        if (params[i].canConvertTo(actualParams[i]) == Integer.MAX_VALUE) {
-                            continue outer;
-                        }
-                    }
-                } else {
-                    if (params.length < actualParams.length - 1) {
-                        continue;
+            if (!m.isVarargs()) {
+                if (actualParams.length != params.length) {
+                    return false;
+                }
+
+                for (int i=0; i<params.length; i++) {
+                    if (params[i].canConvertTo(actualParams[i]) == Integer.MAX_VALUE) {
+                        return false;
                     }
+                }
+            } else {
+                if (params.length < actualParams.length - 1) {
+                    return false;
+                }
 
-                    BaseType varType = actualParams[actualParams.length - 1].elementType();
+                BaseType varType = actualParams[actualParams.length - 1].elementType();
 
-                    for (int i=0; i<params.length; i++) {
-                        BaseType actual = (i < actualParams.length - 1) ? actualParams[i] : varType;
-                        if (params[i].canConvertTo(actual) == Integer.MAX_VALUE) {
-                            if (i == actualParams.length - 1) {
-                                if (params[i].canConvertTo(actualParams[i]) != Integer.MAX_VALUE) {
-                                    // Pass along array parameter as-is.
-                                    break;
-                                }
+                for (int i=0; i<params.length; i++) {
+                    BaseType actual = (i < actualParams.length - 1) ? actualParams[i] : varType;
+                    if (params[i].canConvertTo(actual) == Integer.MAX_VALUE) {
+                        if (i == actualParams.length - 1) {
+                            if (params[i].canConvertTo(actualParams[i]) != Integer.MAX_VALUE) {
+                                // Pass along array parameter as-is.
+                                break;
                             }
-                            continue outer;
                         }
+                        return false;
                     }
                 }
-
-                methods.add(m);
             }
+
+            return true;
         }
 
         @Override
@@ -1820,17 +2202,18 @@ abstract class BaseType implements Type, Typed {
         {
             var key = new MethodKey(returnType, name, paramTypes);
 
+            if (invent) {
+                Method existing = method(key);
+                return existing != null ? existing
+                    : new Method(flags, returnType, name, paramTypes);
+            }
+
             Method existing;
             synchronized (this) {
                 Map<MethodKey, Method> methods = mMethods;
                 if (methods == null) {
                     methods = initMethods();
                 }
-                if (invent) {
-                    existing = methods.get(key);
-                    return existing != null ? existing
-                        : new Method(flags, returnType, name, paramTypes);
-                }
                 var method = new Method(flags, returnType, name, paramTypes);
                 existing = methods.putIfAbsent(key, method);
                 if (existing == null) {
@@ -1850,20 +2233,90 @@ abstract class BaseType implements Type, Typed {
 
             Class clazz = classType();
             if (clazz != null) {
+                // Go through the index to obtain the methods, ensuring that any methods
+                // which were already individually loaded are the same instances.
+                var indexes = methodIndexes();
+                for (Map.Entry<String, List<Method>> e : loadAllMethods(clazz).entrySet()) {
+                    String name = e.getKey();
+                    MethodIndex index = indexes.get(name);
+                    if (index == null) {
+                        index = MethodIndex.make(e.getValue(), name);
+                        MethodIndex existing = indexes.putIfAbsent(name, index);
+                        if (existing != null) {
+                            index = existing;
+                        }
+                    }
+                    index.forEach(m -> methods.put(m.key(), m));
+                }
+            }
+
+            return mMethods = methods;
+        }
+
+        /**
+         * Loads only the declared methods or constructors which have the given name.
+         */
+        private List<Method> loadMethods(Class clazz, String name) {
+            var methods = new ArrayList<Method>();
+
+            TypeSnapshot.Entry snapshot = snapshot(clazz);
+
+            if (snapshot != null) {
+                ClassLoader loader = clazz.getClassLoader();
+                for (TypeSnapshot.Member m : snapshot.methods()) {
+                    if (m.mName.equals(name)) {
+                        BaseType[] types = m.types(loader);
+                        methods.add(new Method(m.mFlags, types[0], name,
+                                               Arrays.copyOfRange(types, 1, types.length)));
+                    }
+                }
+            } else if (name.equals("<init>")) {
+                for (var ctor : clazz.getDeclaredConstructors()) {
+                    methods.add(newMethod(name, ctor, VOID));
+                }
+            } else {
                 for (var method : clazz.getDeclaredMethods()) {
-                    addMethod(methods, method.getName(), method, from(method.getReturnType()));
+                    if (method.getName().equals(name)) {
+                        methods.add(newMethod(name, method, from(method.getReturnType())));
+                    }
                 }
+            }
+
+            return methods;
+        }
+
+        /**
+         * Loads all the declared methods and constructors, grouped by name.
+         */
+        private Map<String, List<Method>> loadAllMethods(Class clazz) {
+            var methods = new HashMap<String, List<Method>>();
+
+            TypeSnapshot.Entry snapshot = snapshot(clazz);
+
+            if (snapshot != null) {
+                ClassLoader loader = clazz.getClassLoader();
+                for (TypeSnapshot.Member m : snapshot.methods()) {
+                    BaseType[] types = m.types(loader);
+                    methods.computeIfAbsent(m.mName, k -> new ArrayList<>())
+                        .add(new Method(m.mFlags, types[0], m.mName,
+                                        Arrays.copyOfRange(types, 1, types.length)));
+                }
+            } else {
                 for (var ctor : clazz.getDeclaredConstructors()) {
-                    addMethod(methods, "<init>", ctor, VOID);
+                    methods.computeIfAbsent("<init>", k -> new ArrayList<>())
+                        .add(newMethod("<init>", ctor, VOID));
+                }
+                for (var method : clazz.getDeclaredMethods()) {
+                    String name = method.getName();
+                    methods.computeIfAbsent(name, k -> new ArrayList<>())
+                        .add(newMethod(name, method, from(method.getReturnType())));
                 }
             }
 
-            return mMethods = methods;
+            return methods;
         }
 
-        private void addMethod(Map<MethodKey, Method> methods,
-                               String name, Executable method, BaseType returnType)
-        {
+        private Method newMethod(String name, Executable method, BaseType returnType) {
             int flags = method.getModifiers();
 
             Class<?>[] params = method.getParameterTypes();
@@ -1872,8 +2325,7 @@ abstract class BaseType implements Type, Typed {
                 paramTypes[i] = from(params[i]);
             }
 
-            var key = new MethodKey(returnType, name, paramTypes);
-            methods.put(key, new Method(flags, returnType, name, paramTypes));
+            return new Method(flags, returnType, name, paramTypes);
         }
 
         @Override
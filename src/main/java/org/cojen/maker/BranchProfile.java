@@ -0,0 +1,353 @@
+/*
+ *  Copyright 2026 Cojen.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.cojen.maker;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+
+/**
+ * Generates branches whose layout is guided by a runtime profile. Each profiled branch is
+ * identified by a key, and each arm of the branch has a counter. Code is first generated with
+ * an instrumented profile, which adds counter increments to each arm. After the generated
+ * code has run for a while, the profile is {@link #freeze frozen}, and the code is generated
+ * again using the frozen profile. The regenerated code has no counters, and the hottest arms
+ * are tested first and are placed on the fall-through path.
+ *
+ * <pre>{@code
+ * BranchProfile profile = BranchProfile.begin();
+ * Class<?> instrumented = generate(profile);
+ * ...
+ * Class<?> optimized = generate(profile.freeze());
+ * }</pre>
+ *
+ * <p>Instrumented code refers to the counters as {@link Variable#setExact exact} constants,
+ * and so it cannot be generated for {@link ClassMaker#beginExternal external} classes. Code
+ * generated with a frozen profile has no such restriction.
+ *
+ * @author Brian S. O'Neill
+ */
+public final class BranchProfile {
+    // Only used when instrumenting.
+    private final ConcurrentHashMap<String, LongAdder[]> mCounters;
+
+    // Only used when frozen.
+    private final Map<String, long[]> mCounts;
+
+    /**
+     * Returns a new instrumented profile, which has no counts.
+     */
+    public static BranchProfile begin() {
+        return new BranchProfile(new ConcurrentHashMap<>(), null);
+    }
+
+    private BranchProfile(ConcurrentHashMap<String, LongAdder[]> counters,
+                          Map<String, long[]> counts)
+    {
+        mCounters = counters;
+        mCounts = counts;
+    }
+
+    /**
+     * Returns true if code generated with this profile is instrumented.
+     */
+    public boolean isInstrumented() {
+        return mCounters != null;
+    }
+
+    /**
+     * Returns a new profile which isn't instrumented and has a snapshot of the current
+     * counts.
+     */
+    public BranchProfile freeze() {
+        var counts = new HashMap<String, long[]>();
+        if (mCounters == null) {
+            counts.putAll(mCounts);
+        } else {
+            for (String key : mCounters.keySet()) {
+                counts.put(key, counts(key));
+            }
+        }
+        return new BranchProfile(null, counts);
+    }
+
+    /**
+     * Resets all the counts of an instrumented profile to zero.
+     *
+     * @throws IllegalStateException if not instrumented
+     */
+    public void reset() {
+        if (mCounters == null) {
+            throw new IllegalStateException("Not instrumented");
+        }
+        for (LongAdder[] counters : mCounters.values()) {
+            for (LongAdder counter : counters) {
+                counter.reset();
+            }
+        }
+    }
+
+    /**
+     * Returns the current counts of each arm of a branch, which is empty if the branch isn't
+     * known by this profile.
+     *
+     * @param key branch key
+     */
+    public long[] counts(String key) {
+        if (mCounters == null) {
+            long[] counts = mCounts.get(key);
+            return counts == null ? new long[0] : counts.clone();
+        }
+
+        LongAdder[] counters = mCounters.get(key);
+        if (counters == null) {
+            return new long[0];
+        }
+
+        var counts = new long[counters.length];
+        for (int i=0; i<counts.length; i++) {
+            counts[i] = counters[i].sum();
+        }
+        return counts;
+    }
+
+    /**
+     * Generates conditional code, where the more frequent case is placed on the fall-through
+     * path. The "then" case is arm 0, and the "else" case is arm 1.
+     *
+     * @param mm the method to generate code into
+     * @param key branch key
+     * @param condition a boolean variable
+     * @param then called to generate the body of the "then" case
+     * @param else_ called to generate the body of the "else" case; can be null if empty
+     */
+    public void ifTrue(MethodMaker mm, String key, Variable condition,
+                       Runnable then, Runnable else_)
+    {
+        Objects.requireNonNull(then);
+
+        long[] counts = prepare(key, 2);
+
+        Label otherLabel = mm.label();
+        Label endLabel = mm.label();
+
+        if (counts[1] > counts[0]) {
+            condition.ifTrue(otherLabel);
+            arm(mm, key, 1, else_);
+            mm.goto_(endLabel);
+            otherLabel.here();
+            arm(mm, key, 0, then);
+        } else {
+            condition.ifFalse(otherLabel);
+            arm(mm, key, 0, then);
+            mm.goto_(endLabel);
+            otherLabel.here();
+            arm(mm, key, 1, else_);
+        }
+
+        endLabel.here();
+    }
+
+    /**
+     * Generates a chain of if-else statements, whose conditions are tested in order of
+     * decreasing frequency. The conditions must be mutually exclusive, since the order in
+     * which they're tested isn't defined. Each condition is an arm, and the final "else" case
+     * is arm {@code count}.
+     *
+     * @param mm the method to generate code into
+     * @param key branch key
+     * @param count the number of conditions
+     * @param condition called to generate a boolean condition for the given arm
+     * @param body called to generate the body for the given arm
+     * @param else_ called to generate the body of the final "else" case; can be null if
+     * empty
+     */
+    public void ifChain(MethodMaker mm, String key, int count,
+                        IntFunction<Variable> condition, IntConsumer body, Runnable else_)
+    {
+        Objects.requireNonNull(condition);
+        Objects.requireNonNull(body);
+
+        long[] counts = prepare(key, count + 1);
+
+        Label endLabel = mm.label();
+
+        for (int arm : order(counts, count)) {
+            Label next = mm.label();
+            condition.apply(arm).ifFalse(next);
+            arm(mm, key, arm, () -> body.accept(arm));
+            mm.goto_(endLabel);
+            next.here();
+        }
+
+        arm(mm, key, count, else_);
+
+        endLabel.here();
+    }
+
+    /**
+     * Generates a switch statement, which first tests the hottest case directly if it's
+     * taken at least half the time. Each case is an arm, and the default case is arm {@code
+     * cases.length}.
+     *
+     * @param mm the method to generate code into
+     * @param key branch key
+     * @param condition an int variable
+     * @param defaultLabel required
+     * @param cases cases to test against
+     * @param labels labels to jump to, which must match the number of cases
+     * @throws IllegalArgumentException if the number of cases and labels doesn't match
+     * @see Variable#switch_
+     */
+    public void switch_(MethodMaker mm, String key, Variable condition,
+                        Label defaultLabel, int[] cases, Label... labels)
+    {
+        Objects.requireNonNull(defaultLabel);
+
+        if (cases.length != labels.length) {
+            throw new IllegalArgumentException("Number of cases and labels doesn't match");
+        }
+
+        long[] counts = prepare(key, cases.length + 1);
+
+        if (mCounters != null) {
+            // Jump to labels which increment the counters first.
+            Label endLabel = mm.label();
+            Label[] targets = labels;
+            labels = new Label[targets.length];
+            for (int i=0; i<labels.length; i++) {
+                labels[i] = mm.label();
+            }
+            Label defaultTarget = defaultLabel;
+            defaultLabel = mm.label();
+
+            mm.goto_(endLabel);
+            for (int i=0; i<labels.length; i++) {
+                labels[i].here();
+                count(mm, key, i);
+                mm.goto_(targets[i]);
+            }
+            defaultLabel.here();
+            count(mm, key, cases.length);
+            mm.goto_(defaultTarget);
+
+            endLabel.here();
+        }
+
+        if (cases.length > 1) {
+            long total = 0;
+            for (long c : counts) {
+                total += c;
+            }
+
+            int hot = order(counts, cases.length)[0];
+
+            if (counts[hot] > 0 && counts[hot] >= total - counts[hot]) {
+                condition.ifEq(cases[hot], labels[hot]);
+
+                int[] newCases = new int[cases.length - 1];
+                Label[] newLabels = new Label[newCases.length];
+                for (int i=0, j=0; i<cases.length; i++) {
+                    if (i != hot) {
+                        newCases[j] = cases[i];
+                        newLabels[j++] = labels[i];
+                    }
+                }
+
+                cases = newCases;
+                labels = newLabels;
+            }
+        }
+
+        condition.switch_(defaultLabel, cases, labels);
+    }
+
+    /**
+     * Returns the current counts and prepares the counters for the given branch.
+     */
+    private long[] prepare(String key, int arms) {
+        Objects.requireNonNull(key);
+
+        if (mCounters != null) {
+            LongAdder[] counters = mCounters.computeIfAbsent(key, k -> {
+                var c = new LongAdder[arms];
+                for (int i=0; i<c.length; i++) {
+                    c[i] = new LongAdder();
+                }
+                return c;
+            });
+            if (counters.length != arms) {
+                throw new IllegalArgumentException
+                    ("Mismatched number of arms for branch " + key + ": " +
+                     arms + " != " + counters.length);
+            }
+        }
+
+        long[] counts = counts(key);
+
+        if (counts.length == 0) {
+            counts = new long[arms];
+        } else if (counts.length != arms) {
+            throw new IllegalArgumentException
+                ("Mismatched number of arms for branch " + key + ": " +
+                 arms + " != " + counts.length);
+        }
+
+        return counts;
+    }
+
+    /**
+     * Returns the first n arms, in order of decreasing frequency. Arms which have the same
+     * count retain their original order.
+     */
+    private static int[] order(long[] counts, int n) {
+        var arms = new Integer[n];
+        for (int i=0; i<n; i++) {
+            arms[i] = i;
+        }
+
+        // Note that the sort is stable.
+        Arrays.sort(arms, (a, b) -> Long.compare(counts[b], counts[a]));
+
+        var order = new int[n];
+        for (int i=0; i<n; i++) {
+            order[i] = arms[i];
+        }
+        return order;
+    }
+
+    private void arm(MethodMaker mm, String key, int arm, Runnable body) {
+        count(mm, key, arm);
+        if (body != null) {
+            body.run();
+        }
+    }
+
+    private void count(MethodMaker mm, String key, int arm) {
+        if (mCounters != null) {
+            mm.var(LongAdder.class).setExact(mCounters.get(key)[arm]).invoke("increment");
+        }
+    }
+}
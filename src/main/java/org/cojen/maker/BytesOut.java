@@ -164,6 +164,15 @@ final class BytesOut {
     }
 
     private static int fullCheckUTF(String str) {
+        int utflen = utfLength(str);
+        return utflen <= 65535 ? 0 : utflen;
+    }
+
+    /**
+     * Returns the number of bytes required to encode the string in modified UTF-8, not
+     * including the length field.
+     */
+    public static int utfLength(String str) {
         final int length = str.length();
 
         int utflen = 0;
@@ -179,7 +188,7 @@ final class BytesOut {
             }
         }
 
-        return utflen <= 65535 ? 0 : utflen;
+        return utflen;
     }
 
     public void write(BytesOut out) throws IOException {
@@ -18,26 +18,43 @@ package org.cojen.maker;
 
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
+import java.lang.invoke.VarHandle;
 
+import java.lang.ref.SoftReference;
 import java.lang.ref.WeakReference;
 
 import java.util.Map;
 import java.util.Objects;
 import java.util.WeakHashMap;
 
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadLocalRandom;
 
+import java.util.concurrent.locks.ReentrantLock;
+
 /**
  * 
  *
  * @author Brian S O'Neill
  */
 class ClassInjector extends ClassLoader {
+    // Note: No monitors are held when classes are loaded or defined. When class generation
+    // runs on virtual threads, a blocked monitor pins the carrier thread.
+
+    static {
+        registerAsParallelCapable();
+    }
+
     private static final WeakCache<Object, ClassInjector> cInjectors = new WeakCache<>();
 
     private final Map<String, Boolean> mReservedNames;
     private final WeakCache<String, Group> mPackageGroups;
 
+    // Cache of types which are resolved by name against this injector, as managed by
+    // BaseType. It's held here instead of in the global cache, because the cached types
+    // would then keep this injector reachable.
+    volatile SoftReference<ConcurrentHashMap<String, BaseType>> mTypeCache;
+
     private ClassInjector(boolean explicit, ClassLoader parent) {
         super(parent);
         mReservedNames = explicit ? null : new WeakHashMap<>();
@@ -52,12 +69,10 @@ class ClassInjector extends ClassLoader {
         ClassInjector injector = cInjectors.get(injectorKey);
 
         if (injector == null) {
-            synchronized (cInjectors) {
-                injector = cInjectors.get(injectorKey);
-                if (injector == null) {
-                    injector = new ClassInjector(explicit, parentLoader);
-                    cInjectors.put(injectorKey, injector);
-                }
+            injector = new ClassInjector(explicit, parentLoader);
+            ClassInjector existing = cInjectors.putIfAbsent(injectorKey, injector);
+            if (existing != null) {
+                injector = existing;
             }
         }
 
@@ -217,13 +232,11 @@ class ClassInjector extends ClassLoader {
         }
 
         Group group = mPackageGroups.get(packageName);
-        if (group == null) {
-            synchronized (mPackageGroups) {
-                group = mPackageGroups.get(packageName);
-                if (group == null && create) {
-                    group = new Group();
-                    mPackageGroups.put(packageName, group);
-                }
+        if (group == null && create) {
+            group = new Group();
+            Group existing = mPackageGroups.putIfAbsent(packageName, group);
+            if (existing != null) {
+                group = existing;
             }
         }
 
@@ -234,12 +247,33 @@ class ClassInjector extends ClassLoader {
      * A group is a loader for one package.
      */
     class Group extends ClassLoader {
+        private static final VarHandle cInstalledHandle, cConstantsHandle, cDedupedHandle;
+
+        static {
+            registerAsParallelCapable();
+
+            try {
+                var lookup = MethodHandles.lookup();
+                cInstalledHandle = lookup.findVarHandle
+                    (Group.class, "mInstalled", WeakCache.class);
+                cConstantsHandle = lookup.findVarHandle
+                    (Group.class, "mConstants", WeakIdentityMap.class);
+                cDedupedHandle = lookup.findVarHandle
+                    (Group.class, "mDeduped", WeakCache.class);
+            } catch (Throwable e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private final ReentrantLock mLookupLock = new ReentrantLock();
+
         private volatile MethodHandles.Lookup mLookup;
 
         private volatile WeakCache<String, Class<?>> mInstalled;
 
-        // Accessed by ConstantsRegistry.
-        Map<Class, Object> mConstants;
+        private volatile WeakIdentityMap<Class<?>, Object> mConstants;
+
+        private volatile WeakCache<String, Class<?>> mDeduped;
 
         private Group() {
             // All group members are at the same level in the hierarchy as the ClassInjector
@@ -261,6 +295,54 @@ class ClassInjector extends ClassLoader {
             return lookup;
         }
 
+        /**
+         * Returns the map of exact constants which are pending, as used by
+         * ConstantsRegistry.
+         */
+        @SuppressWarnings("unchecked")
+        WeakIdentityMap<Class<?>, Object> constants() {
+            WeakIdentityMap<Class<?>, Object> constants = mConstants;
+            if (constants == null) {
+                constants = new WeakIdentityMap<>();
+                var existing = (WeakIdentityMap<Class<?>, Object>)
+                    cConstantsHandle.compareAndExchange(this, null, constants);
+                if (existing != null) {
+                    constants = existing;
+                }
+            }
+            return constants;
+        }
+
+        /**
+         * Returns a class which was added with the given equivalence key, or else null.
+         */
+        Class<?> findDeduped(String key) {
+            WeakCache<String, Class<?>> deduped = mDeduped;
+            return deduped == null ? null : deduped.get(key);
+        }
+
+        /**
+         * Adds a class with the given equivalence key, unless another thread added an
+         * equivalent class first.
+         *
+         * @return the given class or the existing one
+         */
+        @SuppressWarnings("unchecked")
+        Class<?> addDeduped(String key, Class<?> clazz) {
+            WeakCache<String, Class<?>> deduped = mDeduped;
+            if (deduped == null) {
+                deduped = new WeakCache<>();
+                var existing = (WeakCache<String, Class<?>>)
+                    cDedupedHandle.compareAndExchange(this, null, deduped);
+                if (existing != null) {
+                    deduped = existing;
+                }
+            }
+            Class<?> existing = deduped.putIfAbsent(key, clazz);
+            return existing == null ? clazz : existing;
+        }
+
+        @SuppressWarnings("unchecked")
         boolean installClass(Class<?> clazz) {
             while (true) {
                 Class<?> component = clazz.getComponentType();
@@ -277,27 +359,22 @@ class ClassInjector extends ClassLoader {
             WeakCache<String, Class<?>> installed = mInstalled;
 
             if (installed == null) {
-                synchronized (this) {
-                    installed = mInstalled;
-                    if (installed == null) {
-                        mInstalled = installed = new WeakCache<>();
-                    }
+                installed = new WeakCache<>();
+                var existing = (WeakCache<String, Class<?>>)
+                    cInstalledHandle.compareAndExchange(this, null, installed);
+                if (existing != null) {
+                    installed = existing;
                 }
             }
 
-            String name = clazz.getName();
-
-            synchronized (installed) {
-                Class<?> existing = installed.put(name, clazz);
-                if (existing == null) {
-                    return true;
-                }
-                if (existing == clazz) {
-                    return false;
-                }
-                installed.put(name, existing); // restore the original entry
-                throw new IllegalStateException();
+            Class<?> existing = installed.putIfAbsent(clazz.getName(), clazz);
+            if (existing == null) {
+                return true;
             }
+            if (existing == clazz) {
+                return false;
+            }
+            throw new IllegalStateException();
         }
 
         @Override
@@ -329,11 +406,21 @@ class ClassInjector extends ClassLoader {
             return findLoadedClass(name) != null;
         }
 
-        private synchronized MethodHandles.Lookup makeLookup(String className) {
-            MethodHandles.Lookup lookup = mLookup;
-            if (lookup != null) {
-                return lookup;
+        private MethodHandles.Lookup makeLookup(String className) {
+            mLookupLock.lock();
+            try {
+                MethodHandles.Lookup lookup = mLookup;
+                return lookup != null ? lookup : doMakeLookup(className);
+            } finally {
+                mLookupLock.unlock();
             }
+        }
+
+        /**
+         * Caller must hold mLookupLock.
+         */
+        private MethodHandles.Lookup doMakeLookup(String className) {
+            MethodHandles.Lookup lookup;
 
             className = className.substring(0, className.lastIndexOf('.') + 1) + "lookup";
             var cm = new TheClassMaker(className, ClassInjector.this, this).public_().synthetic();
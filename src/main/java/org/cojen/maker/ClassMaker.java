@@ -362,6 +362,28 @@ public interface ClassMaker extends Maker {
      */
     MethodMaker addClinit();
 
+    /**
+     * Add a lazy static constant to this class, and return a maker for the static method
+     * which computes the constant value. Unlike a static field which is set by a {@link
+     * #addClinit static initializer}, the initializer method runs the first time the constant
+     * is accessed, and it doesn't run at all if the constant is never accessed. The constant
+     * is loaded using a dynamic constant, and so it's treated as a true constant by the
+     * compiler.
+     *
+     * <p>The initializer method must return the constant value. If the constant is accessed
+     * by multiple threads at the same time, the initializer method might run more than once,
+     * but only one result is ever observed. If the initializer method throws an exception,
+     * then all accesses to the constant fail with a {@code BootstrapMethodError}.
+     *
+     * @param type a class or name
+     * @param name constant name
+     * @throws IllegalArgumentException if the type is unsupported
+     * @throws IllegalStateException if the lazy constant is already defined
+     * @see MethodMaker#lazyConstant
+     * @see <a href="package-summary.html#types-and-values-heading">Types and Values</a>
+     */
+    MethodMaker addLazyConstant(Object type, String name);
+
     /**
      * Convert this class to a {@code record}, and return a newly added constructor for it.
      * Each field which is currently defined in this class is treated as a record component,
@@ -401,6 +423,20 @@ public interface ClassMaker extends Maker {
      */
     ClassMaker addExplicitInnerClass(String fullName, String className);
 
+    /**
+     * Enable deduplication of the class when {@link #finish finished}. If an equivalent class
+     * was already finished with deduplication enabled, in the same package and class loader,
+     * then that class is returned instead of defining a new one. Classes are equivalent when
+     * their class files are identical, ignoring the class name.
+     *
+     * <p>Deduplication is ignored for classes which have exact constants, which have inner
+     * classes or are inner classes themselves, or which are made using a lookup object. It
+     * should not be enabled for a class whose name is referenced by other classes.
+     *
+     * @return this
+     */
+    ClassMaker dedupe();
+
     /**
      * Set the source file of this class file by adding a source file attribute.
      *
@@ -408,6 +444,43 @@ public interface ClassMaker extends Maker {
      */
     ClassMaker sourceFile(String fileName);
 
+    /**
+     * Enable minimization of the class file, which omits attributes that are only used for
+     * debugging and reflection: the source file, line numbers, local variable names and
+     * signatures, and method parameter names and flags. Constants which are only referenced
+     * by these attributes are omitted too. Minimization should be enabled before any
+     * methods are added, because it only applies to the attributes which are defined
+     * afterwards.
+     *
+     * @return this
+     * @see #minimizedBytes
+     */
+    ClassMaker minimize();
+
+    /**
+     * Returns the number of class file bytes which were saved by {@link #minimize
+     * minimization}, once the class has been finished. Returns zero if minimization isn't
+     * enabled or if the class isn't finished.
+     */
+    int minimizedBytes();
+
+    /**
+     * Enable instrumentation of the methods of this class, which counts invocations and
+     * optionally samples their latency. When the class is finished, each method which isn't
+     * abstract, native, synthetic, a constructor, or a static initializer is instrumented,
+     * and its {@link MethodStats statistics} are registered. Instrumented classes cannot be
+     * {@link #beginExternal external}, because the statistics are referenced as exact
+     * constants.
+     *
+     * @param latencySampleRate sample the latency of one in this many invocations, which
+     * must be a power of two; pass 0 to only count invocations
+     * @return this
+     * @throws IllegalArgumentException if the sample rate isn't zero or a power of two
+     * @throws IllegalStateException if the class is external
+     * @see MethodStats#forClass
+     */
+    ClassMaker instrument(int latencySampleRate);
+
     /**
      * Returns a type object which represents the class being made as an array.
      *
@@ -0,0 +1,304 @@
+/*
+ *  Copyright 2026 Cojen.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.cojen.maker;
+
+import java.io.IOException;
+
+import java.lang.invoke.MethodHandles;
+
+/**
+ * Defines a class once, which can then be specialized into any number of hidden class
+ * variants which differ only by a set of placeholder constants. The template class is
+ * finished into bytes only once, and each variant is made by patching the placeholder
+ * entries of the constant pool and then defining the result. No code generation or flow
+ * analysis is performed when making a variant.
+ *
+ * <pre>{@code
+ * var template = ClassTemplate.begin(null, MethodHandles.lookup(), int.class, String.class);
+ * ClassMaker cm = template.classMaker().public_();
+ * MethodMaker mm = cm.addMethod(String.class, "describe").public_().static_();
+ * mm.return_(mm.concat(template.placeholder(mm, 1), ':', template.placeholder(mm, 0)));
+ * template.finish();
+ *
+ * MethodHandles.Lookup lookup = template.variant(10, "orders");
+ * }</pre>
+ *
+ * <p>Placeholders can have these types: {@code int}, {@code long}, {@code float}, {@code
+ * double} and {@code String}. Classes made from a template cannot have any exact constants.
+ *
+ * @author Brian S. O'Neill
+ */
+public final class ClassTemplate {
+    private final Class<?>[] mTypes;
+    private final ConstantPool.Constant[] mConstants;
+
+    private TheClassMaker mClassMaker;
+
+    private MethodHandles.Lookup mLookup;
+    private volatile byte[] mBytes;
+
+    // Byte offsets into the template class file of each placeholder value. For strings, the
+    // offset refers to the start of the modified UTF-8 encoding, which includes its length.
+    private int[] mOffsets;
+
+    // Placeholder indexes, in ascending offset order.
+    private int[] mOrder;
+
+    /**
+     * Begin defining a class template, whose variants are defined as hidden classes.
+     *
+     * @param className fully qualified class name; pass null to automatically assign a name
+     * @param parentLoader parent class loader; pass null to use default
+     * @param placeholderTypes the types of the placeholder constants
+     * @throws IllegalArgumentException if a placeholder type isn't supported
+     */
+    public static ClassTemplate begin(String className, ClassLoader parentLoader,
+                                      Class<?>... placeholderTypes)
+    {
+        return begin(TheClassMaker.begin(false, className, false, parentLoader, null, null),
+                     placeholderTypes);
+    }
+
+    /**
+     * Begin defining a class template, whose variants are defined as hidden classes in the
+     * same nest as the lookup class.
+     *
+     * @param className fully qualified class name; pass null to use the lookup class name
+     * @param lookup define the variants using this lookup object
+     * @param placeholderTypes the types of the placeholder constants
+     * @throws IllegalArgumentException if a placeholder type isn't supported
+     */
+    public static ClassTemplate begin(String className, MethodHandles.Lookup lookup,
+                                      Class<?>... placeholderTypes)
+    {
+        return begin((TheClassMaker) ClassMaker.begin(className, lookup), placeholderTypes);
+    }
+
+    private static ClassTemplate begin(TheClassMaker cm, Class<?>... placeholderTypes) {
+        if (placeholderTypes == null) {
+            placeholderTypes = new Class[0];
+        }
+
+        var types = placeholderTypes.clone();
+        var constants = new ConstantPool.Constant[types.length];
+
+        for (int i=0; i<types.length; i++) {
+            Object value;
+            Class<?> type = types[i];
+            if (type == int.class) {
+                value = 0;
+            } else if (type == long.class) {
+                value = 0L;
+            } else if (type == float.class) {
+                value = 0.0f;
+            } else if (type == double.class) {
+                value = 0.0;
+            } else if (type == String.class) {
+                value = "";
+            } else {
+                throw new IllegalArgumentException("Unsupported placeholder type: " + type);
+            }
+            constants[i] = cm.addPlaceholder(value);
+        }
+
+        return new ClassTemplate(cm, types, constants);
+    }
+
+    private ClassTemplate(TheClassMaker cm, Class<?>[] types,
+                          ConstantPool.Constant[] constants)
+    {
+        mClassMaker = cm;
+        mTypes = types;
+        mConstants = constants;
+    }
+
+    /**
+     * Returns the maker for defining the template class. The maker must not be finished
+     * directly, and instead the template must be finished.
+     *
+     * @throws IllegalStateException if finished
+     */
+    public ClassMaker classMaker() {
+        return checkClassMaker();
+    }
+
+    /**
+     * Returns an unmodifiable variable which refers to a placeholder constant.
+     *
+     * @param mm a method of the template class
+     * @param index placeholder index, which is zero-based
+     * @throws IndexOutOfBoundsException if the index is out of bounds
+     * @throws IllegalArgumentException if the method doesn't belong to the template class
+     * @throws IllegalStateException if finished
+     */
+    public Variable placeholder(MethodMaker mm, int index) {
+        if (index < 0 || index >= mTypes.length) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        if (mm.classMaker() != checkClassMaker()) {
+            throw new IllegalArgumentException("Method doesn't belong to the template class");
+        }
+        BaseType type = BaseType.from(mTypes[index]);
+        return ((TheMethodMaker) mm).constantVar(type, mConstants[index]);
+    }
+
+    /**
+     * Finishes the definition of the template class, but doesn't define any classes.
+     *
+     * @throws IllegalStateException if already finished, or if the class has exact constants
+     */
+    public void finish() {
+        TheClassMaker cm = checkClassMaker();
+
+        MethodHandles.Lookup lookup = cm.hiddenLookup();
+        byte[] bytes = cm.finishBytes();
+
+        mClassMaker = null;
+
+        int[] poolOffsets = poolOffsets(bytes);
+        var offsets = new int[mConstants.length];
+
+        for (int i=0; i<offsets.length; i++) {
+            ConstantPool.Constant c = mConstants[i];
+            if (c instanceof ConstantPool.C_String str) {
+                c = str.mValue;
+            }
+            // Skip the tag.
+            offsets[i] = poolOffsets[c.mIndex] + 1;
+        }
+
+        // The constant pool might have been renumbered, and so the placeholder order doesn't
+        // necessarily match the offset order.
+        var order = new int[offsets.length];
+        for (int i=0; i<order.length; i++) {
+            // Insertion sort, since the number of placeholders is expected to be small.
+            int j = i;
+            for (; j > 0 && offsets[order[j - 1]] > offsets[i]; j--) {
+                order[j] = order[j - 1];
+            }
+            order[j] = i;
+        }
+
+        mLookup = lookup;
+        mOffsets = offsets;
+        mOrder = order;
+        mBytes = bytes;
+    }
+
+    /**
+     * Defines a new hidden class variant of the template, with the given placeholder values.
+     *
+     * @param values placeholder values, which must exactly match the placeholder types
+     * @return the lookup for the hidden class
+     * @throws IllegalStateException if the template isn't finished
+     * @throws IllegalArgumentException if the wrong number of values is given, if a value
+     * doesn't match its placeholder type, or if a string value is too large
+     */
+    public MethodHandles.Lookup variant(Object... values) {
+        byte[] template = mBytes;
+        if (template == null) {
+            throw new IllegalStateException("Template isn't finished");
+        }
+
+        if (values.length != mTypes.length) {
+            throw new IllegalArgumentException
+                ("Wrong number of placeholder values: " + values.length + " != " +
+                 mTypes.length);
+        }
+
+        var out = new BytesOut(null, template.length + 100);
+        int pos = 0;
+
+        try {
+            for (int i : mOrder) {
+                Object value = values[i];
+                Class<?> type = mTypes[i];
+                int offset = mOffsets[i];
+
+                out.write(template, pos, offset - pos);
+
+                if (type == int.class && value instanceof Integer v) {
+                    out.writeInt(v);
+                    pos = offset + 4;
+                } else if (type == long.class && value instanceof Long v) {
+                    out.writeLong(v);
+                    pos = offset + 8;
+                } else if (type == float.class && value instanceof Float v) {
+                    out.writeFloat(v);
+                    pos = offset + 4;
+                } else if (type == double.class && value instanceof Double v) {
+                    out.writeDouble(v);
+                    pos = offset + 8;
+                } else if (type == String.class && value instanceof String v) {
+                    int utflen = BytesOut.checkUTF(v);
+                    if (utflen > 0) {
+                        throw new IllegalArgumentException
+                            ("Placeholder value " + i + " is too large: " + utflen + " bytes");
+                    }
+                    out.writeUTF(v);
+                    pos = offset + 2 + (((template[offset] & 0xff) << 8)
+                                        | (template[offset + 1] & 0xff));
+                } else {
+                    throw new IllegalArgumentException
+                        ("Placeholder value " + i + " isn't a " + type.getName() + ": " + value);
+                }
+            }
+
+            out.write(template, pos, template.length - pos);
+        } catch (IOException e) {
+            // Not expected.
+            throw new RuntimeException(e);
+        }
+
+        return TheClassMaker.defineHidden(mLookup, out.toByteArray(), null, false);
+    }
+
+    private TheClassMaker checkClassMaker() {
+        TheClassMaker cm = mClassMaker;
+        if (cm == null) {
+            throw new IllegalStateException("Template is finished");
+        }
+        return cm;
+    }
+
+    /**
+     * Returns the byte offsets of each constant pool entry, indexed by constant number.
+     */
+    private static int[] poolOffsets(byte[] bytes) {
+        int count = ((bytes[8] & 0xff) << 8) | (bytes[9] & 0xff);
+        var offsets = new int[count];
+        int pos = 10;
+
+        for (int i=1; i<count; i++) {
+            offsets[i] = pos;
+            int tag = bytes[pos++];
+            switch (tag) {
+            case 1 -> pos += 2 + (((bytes[pos] & 0xff) << 8) | (bytes[pos + 1] & 0xff));
+            case 3, 4, 9, 10, 11, 12, 17, 18 -> pos += 4;
+            case 5, 6 -> {
+                pos += 8;
+                i++; // takes up two slots
+            }
+            case 7, 8, 16, 19, 20 -> pos += 2;
+            case 15 -> pos += 3;
+            default -> throw new AssertionError(tag);
+            }
+        }
+
+        return offsets;
+    }
+}
@@ -0,0 +1,576 @@
+/*
+ *  Copyright 2026 Cojen.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.cojen.maker;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+import java.lang.reflect.Method;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Makes {@link Comparator Comparators} which rely on dynamically generated code. Primitive
+ * properties are compared directly, without boxing, and null ordering is checked inline.
+ * Finished comparators are cached, and so equivalent specifications share the same
+ * comparator instance. Specifications which use a custom {@code Comparator} or a collator
+ * aren't cached, since the cache would retain them forever.
+ *
+ * <pre>{@code
+ * Comparator<Person> c = ComparatorMaker.begin(Person.class)
+ *     .orderBy("lastName").orderBy("firstName").orderBy("-age").finish();
+ * }</pre>
+ *
+ * @author Brian S. O'Neill
+ */
+public final class ComparatorMaker<T> {
+    /**
+     * Computes hash codes and equality which are consistent with a comparator. Instances
+     * are made by the {@link ComparatorMaker#finishEquivalence finishEquivalence} method.
+     */
+    public interface Equivalence<T> {
+        /**
+         * Returns a hash code for the given object, which can be null.
+         */
+        int hash(T obj);
+
+        /**
+         * Returns true if the given objects are equal, either of which can be null.
+         */
+        boolean equal(T a, T b);
+    }
+
+    private static final ClassValue<ConcurrentHashMap<List<Object>, Object>> cCache =
+        new ClassValue<>() {
+            @Override
+            protected ConcurrentHashMap<List<Object>, Object> computeValue(Class<?> type) {
+                return new ConcurrentHashMap<>();
+            }
+        };
+
+    /**
+     * Begin the definition for a root object type. The type and its order-by methods must
+     * be public.
+     */
+    public static <T> ComparatorMaker<T> begin(Class<T> type) {
+        return new ComparatorMaker<T>(type);
+    }
+
+    private final Class<T> mClazz;
+
+    private Clause mFirstClause;
+    private Clause mLastClause;
+
+    private Comparator<String> mCollator;
+
+    private ComparatorMaker(Class<T> clazz) {
+        mClazz = Objects.requireNonNull(clazz);
+        mFirstClause = mLastClause = new Clause();
+    }
+
+    /**
+     * Add an order-by clause based on a method name chain, which is defined as a list of one
+     * or more method names separated by '.' characters. If the chain does not return a {@link
+     * Comparable} object when {@link Comparator#compare compare} is called on the returned
+     * comparator, a {@link ClassCastException} is thrown. Call {@link #using using} to
+     * specify a {@link Comparator} to use instead.
+     *
+     * <p>If chain resolves to a primitive type, the ordering is the same as for its boxed
+     * representation. Primitive booleans are ordered false low, true high. Floating point
+     * primitives are ordered exactly the same way as {@link Float#compareTo(Float)
+     * Float.compareTo} and {@link Double#compareTo(Double) Double.compareTo}.
+     *
+     * <p>As a convenience, clauses may lead with a '-' or '+' character prefix to specify sort
+     * order. A prefix of '-' indicates that the clause is to be sorted in reverse
+     * (descending). Ascending is the default, and so a prefix of '+' has no effect.
+     *
+     * @return this
+     * @throws IllegalArgumentException when chain doesn't exist
+     */
+    public ComparatorMaker<T> orderBy(String chain) {
+        int dot = chain.indexOf('.');
+        String subChain;
+        if (dot < 0) {
+            subChain = null;
+        } else {
+            subChain = chain.substring(dot + 1);
+            chain = chain.substring(0, dot);
+        }
+
+        boolean reverse = false;
+        if (chain.length() > 0) {
+            char prefix = chain.charAt(0);
+            if (prefix == '-' || prefix == '+') {
+                reverse = prefix == '-';
+                chain = chain.substring(1);
+            }
+        }
+
+        Method m;
+        try {
+            m = mClazz.getMethod(chain);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException
+                ("Method '" + chain + "' not found in '" + mClazz.getName() + '\'');
+        }
+
+        Class<?> type = m.getReturnType();
+
+        if (type == void.class) {
+            throw new IllegalArgumentException("Method '" + chain + "' returns void");
+        }
+
+        Clause clause = new Clause();
+        clause.mOrderBy = m;
+        mLastClause.mNext = clause;
+        mLastClause = clause;
+
+        if (subChain != null) {
+            clause.mSub = begin(type).collate(mCollator).orderBy(subChain);
+        } else if (type == String.class) {
+            clause.mUsing = mCollator;
+        }
+
+        if (reverse) {
+            clause.mFlags |= 1;
+        }
+
+        return this;
+    }
+
+    /**
+     * Specify a {@code Comparator} to use on just the last {@link #orderBy order-by}
+     * clause. This is good for comparing order-by clauses that are not {@link Comparable}, or
+     * for applying special ordering rules. If no order-by clauses have been specified yet,
+     * then the {@code Comparator} is applied to the base type.
+     *
+     * <p>Any previously applied {@link #collate collator} setting is overridden by the given
+     * {@code Comparator}. If the clause being compared is primitive, then the boxed
+     * representation is passed to the {@code Comparator}.
+     *
+     * @param c non-null {@code Comparator} to use on the last order-by clause
+     * @return this
+     */
+    public ComparatorMaker<T> using(Comparator<?> c) {
+        Objects.requireNonNull(c);
+        Clause clause = mLastClause;
+        clause.mUsing = c;
+        clause.mSub = null;
+        return this;
+    }
+
+    /**
+     * Toggle reverse-order option on just the last {@link #orderBy order-by} clause. By
+     * default, order is ascending. If no order-by clauses have been specified yet, then
+     * reverse order is applied to the base type.
+     *
+     * @return this
+     */
+    public ComparatorMaker<T> reverse() {
+        mLastClause.mFlags ^= 1;
+        return this;
+    }
+
+    /**
+     * Set the order of comparisons against null as being high (the default) on just the last
+     * {@link #orderBy order-by} clause. If no order-by clauses have been specified yet, then
+     * null high order is applied to the base type. Note: {@code nullHigh().reverse()} is
+     * equivalent to calling {@code reverse().nullLow()}.
+     *
+     * @return this
+     */
+    public ComparatorMaker<T> nullHigh() {
+        Clause clause = mLastClause;
+        clause.mFlags ^= (clause.mFlags & 1) << 1;
+        return this;
+    }
+
+    /**
+     * Set the order of comparisons against null as being low on just the last {@link #orderBy
+     * order-by} clause. If no order-by clauses have been specified yet, then null low order is
+     * applied to the base type. Note: {@code reverse().nullLow()} is equivalent to calling
+     * {@code nullHigh().reverse()}.
+     *
+     * @return this
+     */
+    public ComparatorMaker<T> nullLow() {
+        Clause clause = mLastClause;
+        clause.mFlags ^= ((~clause.mFlags & 1)) << 1;
+        return this;
+    }
+
+    /**
+     * Set a default {@code Comparator} for ordering {@code Strings}, which is applied to the
+     * current order-by clause and all subsequent ones. Passing null for a collator will revert
+     * to using {@link String#compareTo(String) String.compareTo}.
+     *
+     * @param c {@code Comparator} to use for ordering all {@code Strings}
+     * @return this
+     */
+    public ComparatorMaker<T> collate(Comparator<String> c) {
+        mCollator = c;
+        Clause clause = mLastClause;
+        Method m = clause.mOrderBy;
+        if (m != null && m.getReturnType() == String.class && clause.mSub == null) {
+            clause.mUsing = c;
+        }
+        return this;
+    }
+
+    /**
+     * Returns a {@code Comparator} which applies the clauses provided so far. Equivalent
+     * specifications return the same instance, unless a custom {@code Comparator} or a
+     * collator is used.
+     */
+    @SuppressWarnings("unchecked")
+    public Comparator<T> finish() {
+        return (Comparator<T>) finish(false);
+    }
+
+    /**
+     * Returns an {@code Equivalence} which is consistent with the {@code Comparator} made by
+     * the {@link #finish finish} method, as is required for hash joins or for merging sorted
+     * results. Equivalent specifications return the same instance, unless a custom {@code
+     * Comparator} or a collator is used.
+     *
+     * <p>Order-by clauses which are compared by a custom {@code Comparator} don't contribute
+     * to the hash code, and their equality is determined by comparing to zero. Other
+     * non-primitive clauses are compared by {@link Object#equals equals}, which must be
+     * consistent with their natural ordering.
+     */
+    @SuppressWarnings("unchecked")
+    public Equivalence<T> finishEquivalence() {
+        return (Equivalence<T>) finish(true);
+    }
+
+    private Object finish(boolean equivalence) {
+        var key = new ArrayList<Object>();
+        key.add(equivalence);
+
+        if (!appendKey(key)) {
+            // Don't cache instances which depend on user-supplied comparators, which can be
+            // lambdas or collators that are created on demand.
+            return equivalence ? makeEquivalence() : makeComparator();
+        }
+
+        ConcurrentHashMap<List<Object>, Object> cache = cCache.get(mClazz);
+
+        Object instance = cache.get(key);
+
+        if (instance == null) {
+            // Note that computeIfAbsent isn't used, because the generated code might depend
+            // on other instances for the same type.
+            instance = equivalence ? makeEquivalence() : makeComparator();
+            Object existing = cache.putIfAbsent(key, instance);
+            if (existing != null) {
+                instance = existing;
+            }
+        }
+
+        return instance;
+    }
+
+    /**
+     * @return false if the key cannot be cached because a custom comparator is used
+     */
+    private boolean appendKey(List<Object> key) {
+        for (Clause clause = mFirstClause; clause != null; clause = clause.mNext) {
+            if (clause.mUsing != null) {
+                return false;
+            }
+            key.add(clause.mOrderBy);
+            key.add(clause.mFlags);
+            if (clause.mSub == null) {
+                key.add(null);
+            } else {
+                var subKey = new ArrayList<Object>();
+                if (!clause.mSub.appendKey(subKey)) {
+                    return false;
+                }
+                key.add(subKey);
+            }
+        }
+        return true;
+    }
+
+    private ClassMaker beginClass() {
+        ClassMaker cm = ClassMaker.begin(null, mClazz.getClassLoader()).final_();
+        cm.addConstructor().public_();
+        return cm;
+    }
+
+    private static Object newInstance(ClassMaker cm) {
+        try {
+            MethodHandles.Lookup lookup = cm.finishHidden();
+            return lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class))
+                .invoke();
+        } catch (Throwable e) {
+            throw TheClassMaker.toUnchecked(e);
+        }
+    }
+
+    private Comparator<?> makeComparator() {
+        ClassMaker cm = beginClass().implement(Comparator.class);
+        MethodMaker mm = cm.addMethod(int.class, "compare", Object.class, Object.class);
+        makeCompare(mm.public_());
+        return (Comparator<?>) newInstance(cm);
+    }
+
+    private void makeCompare(MethodMaker mm) {
+        Variable param0 = mm.param(0);
+        Variable param1 = mm.param(1);
+
+        Variable orderBy0 = param0;
+        Variable orderBy1 = param1;
+
+        Clause clause = mFirstClause;
+        Class<?> clauseType = Object.class;
+
+        while (true) {
+            if ((clause.mFlags & 1) != 0) {
+                // Reverse.
+                var temp = orderBy0;
+                orderBy0 = orderBy1;
+                orderBy1 = temp;
+                if (clause == mFirstClause) {
+                    param0 = orderBy0;
+                    param1 = orderBy1;
+                }
+            }
+
+            Label nextLabel = null;
+
+            if (!clauseType.isPrimitive()) {
+                // Handle the case when orderBy0 and orderBy1 are the same or null.
+
+                if (clause == mFirstClause) {
+                    // The same objects are always equal, and they cannot be null afterwards.
+                    orderBy0.ifEq(orderBy1, () -> mm.return_(0));
+                } else {
+                    nextLabel = mm.label();
+                    orderBy0.ifEq(orderBy1, nextLabel);
+                }
+
+                boolean nullHigh = (clause.mFlags & 2) == 0;
+                orderBy0.ifEq(null, () -> mm.return_(nullHigh ? 1 : -1));
+                orderBy1.ifEq(null, () -> mm.return_(nullHigh ? -1 : 1));
+            }
+
+            Variable result = null;
+            Comparator<?> using = clause.comparator();
+
+            if (using != null) {
+                var usingVar = mm.var(Comparator.class).setExact(using);
+                result = usingVar.invoke("compare", orderBy0, orderBy1);
+            } else if (clauseType == float.class || clauseType == double.class
+                       || clauseType == boolean.class)
+            {
+                result = orderBy0.invoke("compare", orderBy0, orderBy1);
+            } else if (clauseType.isPrimitive()) {
+                // Compare directly, without calling a method.
+                orderBy0.ifLt(orderBy1, () -> mm.return_(-1));
+                orderBy0.ifGt(orderBy1, () -> mm.return_(1));
+            } else if (clause != mFirstClause) {
+                // Assume parameters are Comparable, or cast them at runtime.
+                if (!Comparable.class.isAssignableFrom(clauseType)) {
+                    orderBy0 = orderBy0.cast(Comparable.class);
+                    orderBy1 = orderBy1.cast(Comparable.class);
+                }
+                result = orderBy0.invoke("compareTo", orderBy1);
+            }
+
+            if (result != null) {
+                if (clause == mLastClause) {
+                    mm.return_(result);
+                    if (nextLabel != null) {
+                        nextLabel.here();
+                        mm.return_(0);
+                    }
+                    return;
+                }
+                Label cont = mm.label();
+                result.ifEq(0, cont);
+                mm.return_(result);
+                cont.here();
+            }
+
+            if (nextLabel != null) {
+                nextLabel.here();
+            }
+
+            boolean wasFirst = clause == mFirstClause;
+            clause = clause.mNext;
+
+            if (clause == null) {
+                mm.return_(0);
+                return;
+            }
+
+            if (wasFirst) {
+                // Cast the parameters such that specific methods may be accessed.
+                param0 = param0.cast(mClazz);
+                param1 = param1.cast(mClazz);
+            }
+
+            clauseType = clause.mOrderBy.getReturnType();
+            orderBy0 = clause.invoke(param0);
+            orderBy1 = clause.invoke(param1);
+        }
+    }
+
+    private Equivalence<?> makeEquivalence() {
+        ClassMaker cm = beginClass().implement(Equivalence.class);
+        cm.installClass(Equivalence.class);
+
+        MethodMaker mm = cm.addMethod(int.class, "hash", Object.class).public_();
+        makeHash(mm);
+
+        mm = cm.addMethod(boolean.class, "equal", Object.class, Object.class).public_();
+        makeEqual(mm);
+
+        return (Equivalence<?>) newInstance(cm);
+    }
+
+    private void makeHash(MethodMaker mm) {
+        Variable obj = mm.param(0);
+        obj.ifEq(null, () -> mm.return_(0));
+
+        Clause clause = mFirstClause.mNext;
+
+        if (clause == null) {
+            if (mFirstClause.mUsing != null) {
+                mm.return_(0);
+            } else {
+                mm.return_(obj.invoke("hashCode"));
+            }
+            return;
+        }
+
+        obj = obj.cast(mClazz);
+        var hash = mm.var(int.class).set(0);
+
+        for (; clause != null; clause = clause.mNext) {
+            Class<?> clauseType = clause.mOrderBy.getReturnType();
+            Variable value = clause.invoke(obj);
+            Variable clauseHash;
+
+            if (clause.mSub != null) {
+                var eqVar = mm.var(Equivalence.class).setExact(clause.mSub.finishEquivalence());
+                clauseHash = eqVar.invoke("hash", value);
+            } else if (clause.mUsing != null) {
+                continue;
+            } else if (clauseType.isPrimitive()) {
+                clauseHash = value.invoke("hashCode", value);
+            } else {
+                clauseHash = mm.var(Objects.class).invoke("hashCode", value);
+            }
+
+            hash.set(hash.mul(31).add(clauseHash));
+        }
+
+        mm.return_(hash);
+    }
+
+    private void makeEqual(MethodMaker mm) {
+        Variable param0 = mm.param(0);
+        Variable param1 = mm.param(1);
+
+        param0.ifEq(param1, () -> mm.return_(true));
+        param0.ifEq(null, () -> mm.return_(false));
+        param1.ifEq(null, () -> mm.return_(false));
+
+        Clause clause = mFirstClause;
+
+        if (clause.mUsing != null) {
+            var usingVar = mm.var(Comparator.class).setExact(clause.mUsing);
+            usingVar.invoke("compare", param0, param1).ifNe(0, () -> mm.return_(false));
+        } else if (clause.mNext == null) {
+            mm.return_(param0.invoke("equals", param1));
+            return;
+        }
+
+        clause = clause.mNext;
+
+        if (clause != null) {
+            param0 = param0.cast(mClazz);
+            param1 = param1.cast(mClazz);
+        }
+
+        for (; clause != null; clause = clause.mNext) {
+            Class<?> clauseType = clause.mOrderBy.getReturnType();
+            Variable value0 = clause.invoke(param0);
+            Variable value1 = clause.invoke(param1);
+
+            if (clause.mSub != null) {
+                var eqVar = mm.var(Equivalence.class).setExact(clause.mSub.finishEquivalence());
+                eqVar.invoke("equal", value0, value1).ifFalse(() -> mm.return_(false));
+            } else if (clause.mUsing != null) {
+                Label next = mm.label();
+                value0.ifEq(value1, next);
+                value0.ifEq(null, () -> mm.return_(false));
+                value1.ifEq(null, () -> mm.return_(false));
+                var usingVar = mm.var(Comparator.class).setExact(clause.mUsing);
+                usingVar.invoke("compare", value0, value1).ifNe(0, () -> mm.return_(false));
+                next.here();
+            } else if (clauseType == float.class || clauseType == double.class) {
+                value0.invoke("compare", value0, value1).ifNe(0, () -> mm.return_(false));
+            } else if (clauseType.isPrimitive()) {
+                value0.ifNe(value1, () -> mm.return_(false));
+            } else {
+                mm.var(Objects.class).invoke("equals", value0, value1)
+                    .ifFalse(() -> mm.return_(false));
+            }
+        }
+
+        mm.return_(true);
+    }
+
+    private static final class Clause {
+        Clause mNext;
+
+        Method mOrderBy;
+
+        // Is set when the order-by clause is a chain.
+        ComparatorMaker<?> mSub;
+
+        Comparator<?> mUsing;
+
+        // bit 0: reverse
+        // bit 1: null low order
+        int mFlags;
+
+        /**
+         * Returns the comparator to use for this clause, or null if none.
+         */
+        Comparator<?> comparator() {
+            return mSub != null ? mSub.finish() : mUsing;
+        }
+
+        /**
+         * Invokes the order-by method on the given object.
+         */
+        Variable invoke(Variable obj) {
+            var empty = new Object[0];
+            return obj.invoke(mOrderBy.getReturnType(), mOrderBy.getName(), empty, empty);
+        }
+    }
+}
@@ -21,7 +21,11 @@ import java.io.IOException;
 import java.lang.invoke.MethodHandleInfo;
 import java.lang.invoke.MethodType;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import static java.lang.invoke.MethodHandleInfo.*;
@@ -34,7 +38,7 @@ import static java.util.Objects.*;
  * @author Brian S O'Neill
  */
 class ConstantPool {
-    private final Map<Constant, Constant> mConstants;
+    private final Map<Object, Constant> mConstants;
     private int mSize;
 
     ConstantPool() {
@@ -49,16 +53,155 @@ class ConstantPool {
                 ("Constant pool entry count cannot exceed 65535: " + size);
         }
         out.writeShort(size);
-        for (Constant c : mConstants.keySet()) {
+        for (Constant c : mConstants.values()) {
             c.writeTo(out);
         }
     }
 
+    /**
+     * Writes the constant pool in a form which is only suitable for computing a class
+     * equivalence key. All references to the given class name are replaced with a marker,
+     * and so two pools which only differ by the name of the class which owns them are
+     * written the same. The values of string constants are never replaced, because they're
+     * observable by the class.
+     *
+     * @param name internal class name, with '/' separators
+     */
+    void writeNormalizedTo(BytesOut out, String name) throws IOException {
+        var strings = new IdentityHashMap<C_UTF8, Boolean>();
+        for (Constant c : mConstants.values()) {
+            if (c instanceof C_String str && str.mTag == 8) {
+                strings.put(str.mValue, true);
+            }
+        }
+
+        out.writeShort(mSize);
+        for (Constant c : mConstants.values()) {
+            if (c instanceof C_UTF8 utf && !strings.containsKey(utf)) {
+                out.writeByte(utf.mTag);
+                String value = normalize(utf.mValue, name);
+                out.writeInt(value.length());
+                for (int i=0; i<value.length(); i++) {
+                    out.writeShort(value.charAt(i));
+                }
+            } else {
+                c.writeTo(out);
+            }
+        }
+    }
+
+    /**
+     * Replaces the name if the whole value matches, and also replaces it within descriptors
+     * and signatures. Any existing marker characters are escaped, so that distinct values
+     * remain distinct.
+     */
+    private static String normalize(String value, String name) {
+        if (value.equals(name)) {
+            return "\0";
+        }
+
+        if (value.indexOf('\0') >= 0) {
+            value = value.replace("\0", "\0\0");
+        }
+
+        int ix = value.indexOf(name);
+        if (ix < 0) {
+            return value;
+        }
+
+        StringBuilder b = null;
+        int start = 0;
+
+        for (; ix >= 0; ix = value.indexOf(name, ix + 1)) {
+            int end = ix + name.length();
+            // Must be a complete class name within a descriptor or signature.
+            if (ix < 1 || value.charAt(ix - 1) != 'L' || end >= value.length()) {
+                continue;
+            }
+            char next = value.charAt(end);
+            if (next != ';' && next != '<') {
+                continue;
+            }
+            if (ix >= 2 && "()[;<>+-*:^".indexOf(value.charAt(ix - 2)) < 0) {
+                continue;
+            }
+            if (b == null) {
+                b = new StringBuilder(value.length());
+            }
+            b.append(value, start, ix).append('\0');
+            start = end;
+        }
+
+        return b == null ? value : b.append(value, start, value.length()).toString();
+    }
+
     C_UTF8 addUTF8(String value) {
         requireNonNull(value);
         return addConstant(new C_UTF8(value));
     }
 
+    /**
+     * Renumbers all the constants such that the given ones have the lowest indexes, in the
+     * given order. All other constants follow in their original order. This method must be
+     * called before any constant indexes are used.
+     *
+     * @param first distinct constants which have been added to this pool
+     */
+    void renumber(List<Constant> first) {
+        var firstKeys = new IdentityHashMap<Constant, Object>(first.size() * 2);
+        for (Constant c : first) {
+            firstKeys.put(c, null);
+        }
+
+        var restKeys = new ArrayList<Object>(mConstants.size());
+        var restConstants = new ArrayList<Constant>(mConstants.size());
+
+        for (Map.Entry<Object, Constant> e : mConstants.entrySet()) {
+            Constant c = e.getValue();
+            if (firstKeys.containsKey(c)) {
+                firstKeys.put(c, e.getKey());
+            } else {
+                restKeys.add(e.getKey());
+                restConstants.add(c);
+            }
+        }
+
+        mConstants.clear();
+        mSize = 1;
+
+        for (Constant c : first) {
+            put(firstKeys.get(c), c);
+        }
+
+        for (int i=0; i<restKeys.size(); i++) {
+            put(restKeys.get(i), restConstants.get(i));
+        }
+    }
+
+    private void put(Object key, Constant c) {
+        c.mIndex = mSize;
+        mSize += (c instanceof C_Long || c instanceof C_Double) ? 2 : 1;
+        mConstants.put(key, c);
+    }
+
+    /**
+     * Returns true if a UTF-8 constant with the given value has been added.
+     */
+    boolean hasUTF8(String value) {
+        return mConstants.containsKey(new C_UTF8(value));
+    }
+
+    /**
+     * Adds the values of all the UTF-8 constants into the given collection.
+     */
+    void collectUTF8(Collection<String> values) {
+        for (Constant c : mConstants.values()) {
+            if (c instanceof C_UTF8 utf) {
+                values.add(utf.mValue);
+            }
+        }
+    }
+
     C_Integer addInteger(int value) {
         return addConstant(new C_Integer(value));
     }
@@ -255,6 +398,42 @@ class ConstantPool {
         return addConstant(new C_NameAndType(name, typeDesc));
     }
 
+    /**
+     * Adds a constant which is never shared with other uses of the same value, and so its
+     * value can be replaced later by patching the class file. A string placeholder refers to
+     * a UTF8 constant which is also never shared.
+     *
+     * @param value initial value, which must be an Integer, Long, Float, Double or String
+     */
+    Constant addPlaceholder(Object value) {
+        Constant constant;
+        if (value instanceof String str) {
+            constant = addUnique(new C_String(8, addUnique(new C_UTF8(str))));
+        } else if (value instanceof Integer num) {
+            constant = addUnique(new C_Integer(num));
+        } else if (value instanceof Float num) {
+            constant = addUnique(new C_Float(num));
+        } else if (value instanceof Long num) {
+            constant = addUnique(new C_Long(num));
+            mSize++; // takes up two slots
+        } else if (value instanceof Double num) {
+            constant = addUnique(new C_Double(num));
+            mSize++; // takes up two slots
+        } else {
+            throw new IllegalArgumentException();
+        }
+
+        return constant;
+    }
+
+    private <C extends Constant> C addUnique(C constant) {
+        // Use a key which isn't equal to any other.
+        mConstants.put(new Object(), constant);
+        constant.mIndex = mSize;
+        mSize++;
+        return constant;
+    }
+
     @SuppressWarnings("unchecked")
     private <C extends Constant> C addConstant(C constant) {
         Constant existing = mConstants.putIfAbsent(constant, constant);
@@ -22,9 +22,9 @@ import java.lang.invoke.VarHandle;
 import java.lang.ref.WeakReference;
 
 import java.util.Arrays;
-import java.util.Map;
 import java.util.Objects;
-import java.util.WeakHashMap;
+
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Support for loading exact constants into generated classes.
@@ -33,11 +33,16 @@ import java.util.WeakHashMap;
  * @hidden
  */
 public abstract class ConstantsRegistry {
-    private static WeakHashMap<ClassLoader, WeakReference<ConstantsRegistry>> cRegistries;
+    private static final WeakIdentityMap<ClassLoader, WeakReference<ConstantsRegistry>>
+        cRegistries = new WeakIdentityMap<>();
+
+    // Held while defining a new registry class, but not when using an existing registry.
+    private static final ReentrantLock cRegistryLock = new ReentrantLock();
 
-    private Map<Class, Object> mConstants;
+    private final WeakIdentityMap<Class<?>, Object> mConstants;
 
     protected ConstantsRegistry() {
+        mConstants = new WeakIdentityMap<>();
     }
 
     /**
@@ -80,38 +85,22 @@ public abstract class ConstantsRegistry {
         ClassLoader loader = clazz.getClassLoader();
 
         if (loader instanceof ClassInjector.Group group) {
-            synchronized (group) {
-                Map<Class, Object> constants = group.mConstants;
-                if (constants == null) {
-                    // Use a WeakHashMap because some classes might be hidden and can be
-                    // unloaded. A strong reference would prevent this.
-                    constants = new WeakHashMap<>(4);
-                    group.mConstants = constants;
-                }
-                constants.put(clazz, obj);
-            }
+            group.constants().put(clazz, obj);
         } else {
-            ConstantsRegistry registry;
-            synchronized (ConstantsRegistry.class) {
-                if (cRegistries == null) {
-                    cRegistries = new WeakHashMap<>(4);
-                }
-                WeakReference<ConstantsRegistry> registryRef = cRegistries.get(loader);
-                if (registryRef == null || (registry = registryRef.get()) == null) {
-                    registry = defineRegistry(lookup);
-                    cRegistries.put(loader, new WeakReference<>(registry));
-                }
-            }
-            synchronized (registry) {
-                Map<Class, Object> constants = registry.mConstants;
-                if (constants == null) {
-                    // Use a WeakHashMap because some classes might be hidden and can be
-                    // unloaded. A strong reference would prevent this.
-                    constants = new WeakHashMap<>(4);
-                    registry.mConstants = constants;
+            ConstantsRegistry registry = registry(loader);
+            if (registry == null) {
+                cRegistryLock.lock();
+                try {
+                    registry = registry(loader);
+                    if (registry == null) {
+                        registry = defineRegistry(lookup);
+                        cRegistries.put(loader, new WeakReference<>(registry));
+                    }
+                } finally {
+                    cRegistryLock.unlock();
                 }
-                constants.put(clazz, obj);
             }
+            registry.mConstants.put(clazz, obj);
         }
     }
 
@@ -128,36 +117,32 @@ public abstract class ConstantsRegistry {
         }
 
         Class<?> clazz = lookup.lookupClass();
-        ClassLoader loader = null;
-        ConstantsRegistry registry = null;
 
+        // Note that none of the code below synchronizes, and so the classes which are
+        // concurrently initialized don't contend with each other.
+
+        WeakIdentityMap<Class<?>, Object> constants;
         Object value;
 
         if (clazz.isHidden()) {
+            constants = null;
             try {
                 value = MethodHandles.classData(lookup, name, Object.class);
             } catch (IllegalAccessException e) {
                 throw new IllegalStateException();
             }
         } else {
-            loader = clazz.getClassLoader();
+            ClassLoader loader = clazz.getClassLoader();
             if (loader instanceof ClassInjector.Group group) {
-                synchronized (group) {
-                    value = group.mConstants == null ? null : group.mConstants.get(clazz);
-                }
+                constants = group.constants();
             } else {
-                WeakReference<ConstantsRegistry> registryRef;
-                synchronized (ConstantsRegistry.class) {
-                    registryRef = cRegistries.get(loader);
-                }
-                if (registryRef == null || (registry = registryRef.get()) == null) {
-                    value = null;
-                } else {
-                    synchronized (registry) {
-                        value = registry.mConstants == null ? null : registry.mConstants.get(clazz);
-                    }
+                ConstantsRegistry registry = registry(loader);
+                if (registry == null) {
+                    throw new NullPointerException();
                 }
+                constants = registry.mConstants;
             }
+            value = constants.get(clazz);
         }
 
         if (value == null) {
@@ -165,43 +150,31 @@ public abstract class ConstantsRegistry {
         }
 
         if (value instanceof Entries entries) {
-            synchronized (entries) {
-                value = entries.mValues[slot & Integer.MAX_VALUE];
-                if (value == null) {
-                    throw new NullPointerException();
-                }
-                int size = entries.mSize;
-                if (slot < 0) {
-                    entries.mValues[slot & Integer.MAX_VALUE] = null;
-                    entries.mSize = --size;
-                }
-                if (size > 0) {
-                    return value;
-                }
+            if (slot >= 0) {
+                return entries.get(slot);
             }
+            Object consumed = entries.consume(slot);
+            if (constants != null && entries.isEmpty()) {
+                constants.remove(clazz, entries);
+            }
+            return consumed;
         }
 
-        if (slot < 0) {
-            if (loader instanceof ClassInjector.Group group) {
-                synchronized (group) {
-                    group.mConstants.remove(clazz);
-                    if (group.mConstants.isEmpty()) {
-                        group.mConstants = null;
-                    }
-                }
-            } else if (registry != null) {
-                synchronized (registry) {
-                    registry.mConstants.remove(clazz);
-                    if (registry.mConstants.isEmpty()) {
-                        registry.mConstants = null;
-                    }
-                }
-            }
+        if (slot < 0 && constants != null) {
+            constants.remove(clazz, value);
         }
 
         return value;
     }
 
+    /**
+     * @return null if not found
+     */
+    private static ConstantsRegistry registry(ClassLoader loader) {
+        WeakReference<ConstantsRegistry> registryRef = cRegistries.get(loader);
+        return registryRef == null ? null : registryRef.get();
+    }
+
     /**
      * Defines a ConstantsRegistry subclass in the class loader of the given lookup. The
      * returned instance is a singleton, strongly referenced to prevent premature GC.
@@ -234,7 +207,23 @@ public abstract class ConstantsRegistry {
         return (ConstantsRegistry) vh.get();
     }
 
+    /**
+     * Multiple constants assigned to a class. Slots are consumed atomically, and so multiple
+     * threads can safely resolve them at the same time.
+     */
     private static final class Entries {
+        private static final VarHandle cValuesHandle, cSizeHandle;
+
+        static {
+            try {
+                var lookup = MethodHandles.lookup();
+                cValuesHandle = MethodHandles.arrayElementVarHandle(Object[].class);
+                cSizeHandle = lookup.findVarHandle(Entries.class, "mSize", int.class);
+            } catch (Throwable e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
         Object[] mValues;
         int mSize;
 
@@ -259,5 +248,34 @@ public abstract class ConstantsRegistry {
                 mValues = Arrays.copyOf(mValues, mSize);
             }
         }
+
+        /**
+         * @throws NullPointerException if the slot has already been consumed
+         */
+        Object get(int slot) {
+            Object value = cValuesHandle.getVolatile(mValues, slot & Integer.MAX_VALUE);
+            if (value == null) {
+                throw new NullPointerException();
+            }
+            return value;
+        }
+
+        /**
+         * Atomically removes the value from the slot.
+         *
+         * @throws NullPointerException if the slot has already been consumed
+         */
+        Object consume(int slot) {
+            Object value = cValuesHandle.getAndSet(mValues, slot & Integer.MAX_VALUE, null);
+            if (value == null) {
+                throw new NullPointerException();
+            }
+            cSizeHandle.getAndAdd(this, -1);
+            return value;
+        }
+
+        boolean isEmpty() {
+            return ((int) cSizeHandle.getVolatile(this)) <= 0;
+        }
     }
 }
@@ -223,6 +223,7 @@ final class ExternalType extends BaseType.Clazz implements ClassMaker, Annotatio
 
         var method = new Method(0, retType, name, paramTypes);
         methods.put(new MethodKey(retType, name, paramTypes), method);
+        uncacheFindMethod(name);
 
         var maker = StubMaker.newInstance(MMaker.class);
         maker.member = method;
@@ -240,6 +241,11 @@ final class ExternalType extends BaseType.Clazz implements ClassMaker, Annotatio
         return StubMaker.newInstance(MethodMaker.class);
     }
 
+    @Override
+    public MethodMaker addLazyConstant(Object type, String name) {
+        return doAddMethod(typeFrom(type), TheClassMaker.lazyMethodName(name));
+    }
+
     @Override
     public MethodMaker asRecord() {
         extend(Record.class).final_();
@@ -274,11 +280,31 @@ final class ExternalType extends BaseType.Clazz implements ClassMaker, Annotatio
         return new ExternalType(fullName, mProvider);
     }
 
+    @Override
+    public ClassMaker dedupe() {
+        return this;
+    }
+
     @Override
     public ClassMaker sourceFile(String fileName) {
         return this;
     }
 
+    @Override
+    public ClassMaker minimize() {
+        return this;
+    }
+
+    @Override
+    public int minimizedBytes() {
+        return 0;
+    }
+
+    @Override
+    public ClassMaker instrument(int latencySampleRate) {
+        return this;
+    }
+
     @Override
     public ClassLoader classLoader() {
         return null;
@@ -0,0 +1,280 @@
+/*
+ *  Copyright 2026 Cojen.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.cojen.maker;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Makes flyweight classes which access fixed-size binary records in a {@link ByteBuffer}.
+ * A flyweight instance is positioned over a record by calling its {@code wrap} method, and
+ * it can then be repositioned over other records without allocating new instances.
+ *
+ * <p>For each field of the layout, a public getter method is generated which has the same
+ * name as the field, and a public setter method is generated which has the same name and
+ * accepts the new value. Fields are accessed with {@link VarHandle} constants, which apply
+ * the byte order of the layout regardless of the byte order of the buffer. The bounds of
+ * the whole record are checked when the flyweight is wrapped, and each field access is
+ * still checked against the bounds of the buffer.
+ *
+ * <p>The generated class also has these methods:
+ *
+ * <ul>
+ * <li>{@code wrap(ByteBuffer buffer, int offset)} &mdash; positions the flyweight and
+ * returns it
+ * <li>{@code buffer()} &mdash; returns the wrapped buffer
+ * <li>{@code offset()} &mdash; returns the offset of the record
+ * <li>{@code copyFrom(T other)} &mdash; copies the record of another flyweight of the
+ * same class
+ * <li>{@code copyFrom(byte[] src, int srcOffset)} &mdash; copies the record from an array
+ * <li>{@code copyTo(byte[] dst, int dstOffset)} &mdash; copies the record into an array
+ * </ul>
+ *
+ * <p>The record size is available from the public static {@code SIZE} field.
+ *
+ * <pre>{@code
+ * Class<?> clazz = FlyweightMaker.begin("org.acme.Trade", null, ByteOrder.LITTLE_ENDIAN)
+ *     .field("id", long.class)
+ *     .field("price", double.class)
+ *     .field("qty", int.class)
+ *     .finish();
+ * }</pre>
+ *
+ * @author Brian S. O'Neill
+ */
+public final class FlyweightMaker {
+    private static final Set<String> RESERVED =
+        Set.of("SIZE", "wrap", "buffer", "offset", "copyFrom", "copyTo");
+
+    private final ClassMaker mClassMaker;
+    private final ByteOrder mOrder;
+    private final LinkedHashMap<String, Entry> mFields;
+
+    private int mSize;
+    private int mNextOffset;
+
+    /**
+     * Begin defining a flyweight class.
+     *
+     * @param className fully qualified class name; pass null to automatically assign a name
+     * @param parentLoader parent class loader; pass null to use default
+     * @param order byte order of all the fields
+     */
+    public static FlyweightMaker begin(String className, ClassLoader parentLoader,
+                                       ByteOrder order)
+    {
+        Objects.requireNonNull(order);
+        return new FlyweightMaker(ClassMaker.begin(className, parentLoader), order);
+    }
+
+    private FlyweightMaker(ClassMaker cm, ByteOrder order) {
+        mClassMaker = cm.public_().final_();
+        mOrder = order;
+        mFields = new LinkedHashMap<>();
+    }
+
+    /**
+     * Returns the maker for the flyweight class, which can be used to implement interfaces
+     * and to define additional methods.
+     */
+    public ClassMaker classMaker() {
+        return mClassMaker;
+    }
+
+    /**
+     * Add a field which immediately follows the end of the previously added field.
+     *
+     * @param name field name
+     * @param type a primitive type
+     * @return this
+     * @throws IllegalArgumentException if the name is in use or reserved, or if the type
+     * isn't primitive
+     * @throws IllegalStateException if finished
+     */
+    public FlyweightMaker field(String name, Class<?> type) {
+        return field(name, type, mNextOffset);
+    }
+
+    /**
+     * Add a field at a specific offset, relative to the start of the record. Fields can
+     * overlap each other.
+     *
+     * @param name field name
+     * @param type a primitive type
+     * @param offset byte offset of the field
+     * @return this
+     * @throws IllegalArgumentException if the name is in use or reserved, if the type isn't
+     * primitive, or if the offset is negative
+     * @throws IllegalStateException if finished
+     */
+    public FlyweightMaker field(String name, Class<?> type, int offset) {
+        checkFinished();
+
+        Objects.requireNonNull(name);
+
+        if (RESERVED.contains(name) || mFields.containsKey(name)) {
+            throw new IllegalArgumentException("Field name is in use or reserved: " + name);
+        }
+
+        int width;
+        if (type == byte.class || type == boolean.class) {
+            width = 1;
+        } else if (type == short.class || type == char.class) {
+            width = 2;
+        } else if (type == int.class || type == float.class) {
+            width = 4;
+        } else if (type == long.class || type == double.class) {
+            width = 8;
+        } else {
+            throw new IllegalArgumentException("Unsupported field type: " + type);
+        }
+
+        if (offset < 0) {
+            throw new IllegalArgumentException("Negative offset: " + offset);
+        }
+
+        int end = Math.addExact(offset, width);
+
+        mFields.put(name, new Entry(type, offset));
+        mNextOffset = end;
+        mSize = Math.max(mSize, end);
+
+        return this;
+    }
+
+    /**
+     * Returns the size of a record, as defined by the fields added so far.
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Finishes the flyweight class.
+     *
+     * @throws IllegalStateException if already finished
+     */
+    public Class<?> finish() {
+        checkFinished();
+
+        mNextOffset = -1;
+
+        ClassMaker cm = mClassMaker;
+        int size = mSize;
+
+        cm.addField(int.class, "SIZE").public_().static_().final_().init(size);
+        cm.addField(ByteBuffer.class, "buffer").private_();
+        cm.addField(int.class, "offset").private_();
+
+        cm.addConstructor().public_();
+
+        MethodMaker mm = cm.addMethod(cm, "wrap", ByteBuffer.class, int.class).public_();
+        {
+            var buffer = mm.param(0);
+            var offset = mm.param(1);
+            mm.var(Objects.class).invoke("checkFromIndexSize",
+                                         offset, size, buffer.invoke("limit"));
+            mm.field("buffer").set(buffer);
+            mm.field("offset").set(offset);
+            mm.return_(mm.this_());
+        }
+
+        mm = cm.addMethod(ByteBuffer.class, "buffer").public_();
+        mm.return_(mm.field("buffer"));
+
+        mm = cm.addMethod(int.class, "offset").public_();
+        mm.return_(mm.field("offset"));
+
+        mm = cm.addMethod(null, "copyFrom", cm).public_();
+        {
+            var other = mm.param(0);
+            mm.field("buffer").invoke("put", mm.field("offset"),
+                                      other.field("buffer"), other.field("offset"), size);
+        }
+
+        mm = cm.addMethod(null, "copyFrom", byte[].class, int.class).public_();
+        mm.field("buffer").invoke("put", mm.field("offset"), mm.param(0), mm.param(1), size);
+
+        mm = cm.addMethod(null, "copyTo", byte[].class, int.class).public_();
+        mm.field("buffer").invoke("get", mm.field("offset"), mm.param(0), mm.param(1), size);
+
+        for (Map.Entry<String, Entry> e : mFields.entrySet()) {
+            String name = e.getKey();
+            Class<?> type = e.getValue().mType;
+            int fieldOffset = e.getValue().mOffset;
+
+            mm = cm.addMethod(type, name).public_();
+            {
+                var buffer = mm.field("buffer");
+                var index = mm.field("offset").add(fieldOffset);
+                if (type == byte.class) {
+                    mm.return_(buffer.invoke("get", index));
+                } else if (type == boolean.class) {
+                    mm.return_(buffer.invoke("get", index).ne(0));
+                } else {
+                    mm.return_(mm.access(viewHandle(type), buffer, index));
+                }
+            }
+
+            mm = cm.addMethod(null, name, type).public_();
+            {
+                var buffer = mm.field("buffer");
+                var index = mm.field("offset").add(fieldOffset);
+                var value = mm.param(0);
+                if (type == byte.class) {
+                    buffer.invoke("put", index, value);
+                } else if (type == boolean.class) {
+                    var b = mm.var(byte.class).set(0);
+                    value.ifTrue(() -> b.set(1));
+                    buffer.invoke("put", index, b);
+                } else {
+                    mm.access(viewHandle(type), buffer, index).set(value);
+                }
+            }
+        }
+
+        return cm.finish();
+    }
+
+    private VarHandle viewHandle(Class<?> type) {
+        return MethodHandles.byteBufferViewVarHandle(type.arrayType(), mOrder);
+    }
+
+    private void checkFinished() {
+        if (mNextOffset < 0) {
+            throw new IllegalStateException("Already finished");
+        }
+    }
+
+    private static final class Entry {
+        final Class<?> mType;
+        final int mOffset;
+
+        Entry(Class<?> type, int offset) {
+            mType = type;
+            mOffset = offset;
+        }
+    }
+}
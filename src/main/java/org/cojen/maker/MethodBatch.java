@@ -0,0 +1,158 @@
+/*
+ *  Copyright 2026 Cojen.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.cojen.maker;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Defines many standalone methods at once, as static methods of a single hidden class. This
+ * is more efficient than calling {@link MethodMaker#begin MethodMaker.begin} for each method,
+ * which defines a hidden class per method.
+ *
+ * <pre>{@code
+ * MethodBatch batch = MethodBatch.begin(MethodHandles.lookup());
+ * MethodMaker mm = batch.add("twice", MethodType.methodType(int.class, int.class));
+ * mm.return_(mm.param(0).mul(2));
+ * ...
+ * List<MethodHandle> handles = batch.finish();
+ * }</pre>
+ *
+ * @author Brian S. O'Neill
+ */
+public final class MethodBatch {
+    private final TheClassMaker mClassMaker;
+
+    private List<String> mNames;
+    private List<MethodType> mTypes;
+    private HashSet<String> mUsedNames;
+
+    /**
+     * Begin defining a batch of standalone methods, defined in the same nest as the lookup
+     * class.
+     *
+     * @param lookup define the methods using this lookup object
+     */
+    public static MethodBatch begin(MethodHandles.Lookup lookup) {
+        Class<?> lookupClass = lookup.lookupClass();
+        String className = lookupClass.getName();
+        className = className.substring(0, className.lastIndexOf('.') + 1) + "batch";
+        ClassLoader loader = lookupClass.getClassLoader();
+        return new MethodBatch(TheClassMaker.begin(false, className, true, loader, null, lookup));
+    }
+
+    private MethodBatch(TheClassMaker cm) {
+        mClassMaker = cm;
+        mNames = new ArrayList<>();
+        mTypes = new ArrayList<>();
+        mUsedNames = new HashSet<>();
+    }
+
+    /**
+     * Add a standalone method to the batch. The returned maker cannot be finished directly,
+     * and instead the whole batch must be finished.
+     *
+     * @param name method name; use null or "_" if unnamed
+     * @param type defines the return type and parameter types
+     * @throws IllegalStateException if the batch is finished
+     */
+    public MethodMaker add(String name, MethodType type) {
+        checkFinished();
+
+        if (name == null) {
+            name = "_";
+        }
+
+        if (type == null) {
+            type = MethodType.methodType(void.class);
+        }
+
+        if (!mUsedNames.add(name)) {
+            String base = name;
+            int i = mNames.size();
+            do {
+                name = base + '$' + i++;
+            } while (!mUsedNames.add(name));
+        }
+
+        mNames.add(name);
+        mTypes.add(type);
+
+        return mClassMaker.addMethod(name, type).static_();
+    }
+
+    /**
+     * Returns the number of methods which have been added.
+     */
+    public int size() {
+        checkFinished();
+        return mNames.size();
+    }
+
+    /**
+     * Returns the class maker which all the methods are defined in, which can be used to
+     * define additional helper methods and fields.
+     *
+     * @throws IllegalStateException if the batch is finished
+     */
+    public ClassMaker classMaker() {
+        checkFinished();
+        return mClassMaker;
+    }
+
+    /**
+     * Finishes the definition of all the methods in the batch, with a single hidden class.
+     *
+     * @return method handles, in the same order as the methods were added
+     * @throws IllegalStateException if already finished
+     */
+    public List<MethodHandle> finish() {
+        checkFinished();
+
+        List<String> names = mNames;
+        List<MethodType> types = mTypes;
+        mNames = null;
+        mTypes = null;
+        mUsedNames = null;
+
+        MethodHandles.Lookup lookup = mClassMaker.finishHidden();
+        Class<?> clazz = lookup.lookupClass();
+
+        var handles = new MethodHandle[names.size()];
+
+        try {
+            for (int i=0; i<handles.length; i++) {
+                handles[i] = lookup.findStatic(clazz, names.get(i), types.get(i));
+            }
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+
+        return List.of(handles);
+    }
+
+    private void checkFinished() {
+        if (mNames == null) {
+            throw new IllegalStateException("Batch is finished");
+        }
+    }
+}
@@ -21,8 +21,13 @@ import java.lang.constant.Constable;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
 import java.lang.invoke.VarHandle;
 
+import java.util.Objects;
+
+import java.util.concurrent.Executor;
+
 import java.util.function.Consumer;
 
 /**
@@ -71,6 +76,55 @@ public interface MethodMaker extends Maker {
         return begin(lookup, type, type.returnType(), name, (Object[]) type.parameterArray());
     }
 
+    /**
+     * Begin defining a standalone method in the background, and immediately return a method
+     * handle which invokes it. Until the method is finished, the returned handle invokes the
+     * given generic implementation, which is expected to be slower but cheaper to obtain.
+     * When the body has been defined, the returned handle switches over to the finished
+     * method. If the body or finish step throws an exception, the generic implementation
+     * continues to be used, and the exception is thrown from the background task.
+     *
+     * @param lookup define the method using this lookup object
+     * @param name method name; use null or "_" if unnamed
+     * @param type defines the return type and parameter types
+     * @param generic implementation to use until the method is finished
+     * @param body called in the background to define the method body; the method must not
+     * be finished by the body
+     * @param executor runs the background task
+     * @throws IllegalArgumentException if the generic implementation doesn't have the same
+     * method type
+     * @see #begin(MethodHandles.Lookup, String, MethodType)
+     */
+    static MethodHandle tiered(MethodHandles.Lookup lookup, String name, MethodType type,
+                               MethodHandle generic, Consumer<? super MethodMaker> body,
+                               Executor executor)
+    {
+        Objects.requireNonNull(lookup);
+        Objects.requireNonNull(body);
+        Objects.requireNonNull(executor);
+
+        if (type == null) {
+            type = MethodType.methodType(void.class);
+        }
+
+        if (!generic.type().equals(type)) {
+            throw new IllegalArgumentException
+                ("Mismatched generic implementation: " + generic.type() + " != " + type);
+        }
+
+        var site = new MutableCallSite(generic);
+        final MethodType mtype = type;
+
+        executor.execute(() -> {
+            MethodMaker mm = begin(lookup, name, mtype);
+            body.accept(mm);
+            site.setTarget(mm.finish());
+            MutableCallSite.syncAll(new MutableCallSite[] {site});
+        });
+
+        return site.dynamicInvoker();
+    }
+
     private static MethodMaker begin(MethodHandles.Lookup lookup, MethodType type,
                                      Object retType, String methodName, Object... paramTypes)
     {
@@ -363,6 +417,31 @@ public interface MethodMaker extends Maker {
      */
     Field field(String name);
 
+    /**
+     * Access a lazy static constant in the enclosing class of this method. The returned
+     * variable cannot be modified.
+     *
+     * @param name constant name
+     * @throws IllegalStateException if the lazy constant isn't found
+     * @see ClassMaker#addLazyConstant
+     */
+    Variable lazyConstant(String name);
+
+    /**
+     * Returns a variable which refers to a primitive array constant. The array is encoded
+     * into the class file as string constants, and it's decoded the first time the constant
+     * is accessed. Unlike an {@link Variable#setExact exact} constant, the array is supported
+     * by {@link ClassMaker#beginExternal external} classes, and unlike a static initializer
+     * which sets each element, the code size doesn't depend on the array length.
+     *
+     * <p>The array is copied when this method is called, and all accesses to the constant
+     * refer to the same decoded array instance, which shouldn't be modified.
+     *
+     * @param array a primitive array
+     * @throws IllegalArgumentException if not given a primitive array
+     */
+    Variable arrayConstant(Object array);
+
     /**
      * Invoke a static or instance method on the enclosing object of this method.
      *
@@ -555,6 +634,94 @@ public interface MethodMaker extends Maker {
      */
     void finally_(Label tryStart, Consumer<Variable> handler);
 
+    /**
+     * Define a finally handler which is generated only once for all the normal exit paths
+     * between the start label and here, and once more for the exception path. Each normal
+     * exit path stores an index into a local variable and then branches to the shared
+     * handler, which switches on the index to continue to the original exit target. The
+     * size of the generated code is therefore linear in the number of exit paths, which is
+     * preferred when the handler is large and there are many exit paths.
+     *
+     * <p>Because the normal exit paths merge together, a variable which is accessed after
+     * an exit must be assigned before the start label, or else it's considered to be
+     * unassigned.
+     *
+     * @param handler called at most twice to generate handler code
+     * @throws IllegalStateException if the start label is unpositioned
+     * @see #finally_(Label, Runnable)
+     */
+    void sharedFinally(Label tryStart, Runnable handler);
+
+    /**
+     * Define a finally handler which is generated only once for all the normal exit paths
+     * between the start label and here, and once more for the exception path. When the
+     * handler is called for generating the exception case, a variable of type {@link
+     * Throwable} is provided which references the exception which will be rethrown. For the
+     * shared normal case, null is provided.
+     *
+     * @param handler called at most twice to generate handler code
+     * @throws IllegalStateException if the start label is unpositioned
+     * @see #sharedFinally(Label, Runnable)
+     */
+    void sharedFinally(Label tryStart, Consumer<Variable> handler);
+
+    /**
+     * Generates a counted loop over a range of {@code int} indexes, in a shape which the
+     * HotSpot compiler recognizes. When the unroll factor is more than one, the main loop
+     * calls the body generator for each unrolled step, and a scalar loop handles the
+     * remaining indexes. The main loop increments the index once per iteration, and the body
+     * receives the index plus the step offset for each unrolled step.
+     *
+     * <pre>{@code
+     * // for (int i=0; i<array.length; i++) sum += array[i];
+     * mm.forRange(0, array.alength(), 4, i -> sum.inc(array.aget(i)));
+     * }</pre>
+     *
+     * @param start inclusive start of the range; {@link Variable} or constant
+     * @param end exclusive end of the range; {@link Variable} or constant, which is only
+     * evaluated once
+     * @param unrollFactor number of body steps in the main loop; pass 1 to generate a simple
+     * loop
+     * @param body called for each unrolled step and for the remainder loop, receiving the
+     * index; the index variable must not be modified
+     * @throws IllegalArgumentException if the unroll factor is less than one, or if a value
+     * isn't a variable or a supported constant
+     * @throws IllegalStateException if a value cannot be converted to an {@code int}
+     */
+    default void forRange(Object start, Object end, int unrollFactor, Consumer<Variable> body) {
+        if (unrollFactor < 1) {
+            throw new IllegalArgumentException("Unroll factor: " + unrollFactor);
+        }
+
+        Variable ix = var(int.class).set(start);
+        Variable endVar = var(int.class).set(end);
+        Label done = label();
+
+        if (unrollFactor > 1) {
+            Variable limit = endVar.sub(unrollFactor - 1);
+            // If the subtraction overflowed, the main loop must not run at all.
+            limit.ifGt(endVar, () -> limit.set(Integer.MIN_VALUE));
+
+            Label tail = label();
+            ix.ifGe(limit, tail);
+            Label loop = label().here();
+            body.accept(ix);
+            for (int i=1; i<unrollFactor; i++) {
+                body.accept(ix.add(i));
+            }
+            ix.inc(unrollFactor);
+            ix.ifLt(limit, loop);
+            tail.here();
+        }
+
+        ix.ifGe(endVar, done);
+        Label loop = label().here();
+        body.accept(ix);
+        ix.inc(1);
+        ix.ifLt(endVar, loop);
+        done.here();
+    }
+
     /**
      * Concatenate variables and constants together into a new {@link String} in the same
      * manner as the Java concatenation operator. If no values are given, the returned variable
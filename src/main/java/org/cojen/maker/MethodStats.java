@@ -0,0 +1,234 @@
+/*
+ *  Copyright 2026 Cojen.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.cojen.maker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.WeakHashMap;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Invocation and latency statistics for a method of an {@link ClassMaker#instrument
+ * instrumented} class. The statistics are registered when the class is defined, and they're
+ * available from the {@link #forClass forClass} and {@link #all all} methods until the class
+ * is unloaded.
+ *
+ * <p>Latency samples are recorded in a histogram whose buckets are powers of two. Bucket
+ * {@code i} counts the samples whose latency is at least 2<sup>i</sup> nanoseconds and less
+ * than 2<sup>i+1</sup> nanoseconds, except that bucket 0 also counts samples which are
+ * zero. All counters are striped to reduce contention, and recording doesn't allocate
+ * memory.
+ *
+ * @author Brian S. O'Neill
+ */
+public final class MethodStats {
+    // Maps instrumented classes to their statistics. The statistics don't refer to the class,
+    // and so they don't prevent it from being unloaded.
+    private static final WeakHashMap<Class<?>, List<MethodStats>> cRegistry =
+        new WeakHashMap<>();
+
+    private final String mClassName;
+    private final String mMethodName;
+    private final String mDescriptor;
+
+    // Is -1 if latency isn't sampled.
+    private final int mSampleMask;
+
+    private final LongAdder mInvocations;
+    private final LongAdder mSamples;
+    private final LongAdder mLatencySum;
+    private final LongAdder[] mHistogram;
+
+    /**
+     * Returns the statistics of all the instrumented classes which haven't been unloaded, in
+     * no particular order.
+     */
+    public static List<MethodStats> all() {
+        var all = new ArrayList<MethodStats>();
+        synchronized (cRegistry) {
+            for (List<MethodStats> list : cRegistry.values()) {
+                all.addAll(list);
+            }
+        }
+        return all;
+    }
+
+    /**
+     * Returns the statistics for the methods of an instrumented class, which is empty if the
+     * class isn't instrumented.
+     */
+    public static List<MethodStats> forClass(Class<?> clazz) {
+        List<MethodStats> list;
+        synchronized (cRegistry) {
+            list = cRegistry.get(clazz);
+        }
+        return list == null ? List.of() : list;
+    }
+
+    /**
+     * Registers the statistics of a class, as called after an instrumented class is defined.
+     */
+    static void register(Class<?> clazz, List<MethodStats> list) {
+        list = List.copyOf(list);
+        synchronized (cRegistry) {
+            cRegistry.put(clazz, list);
+        }
+    }
+
+    /**
+     * @param sampleMask is -1 if latency isn't sampled
+     */
+    MethodStats(String className, String methodName, String descriptor, int sampleMask) {
+        mClassName = className;
+        mMethodName = methodName;
+        mDescriptor = descriptor;
+        mSampleMask = sampleMask;
+
+        mInvocations = new LongAdder();
+
+        if (sampleMask < 0) {
+            mSamples = null;
+            mLatencySum = null;
+            mHistogram = null;
+        } else {
+            mSamples = new LongAdder();
+            mLatencySum = new LongAdder();
+            mHistogram = new LongAdder[64];
+            for (int i=0; i<mHistogram.length; i++) {
+                mHistogram[i] = new LongAdder();
+            }
+        }
+    }
+
+    boolean isSampled() {
+        return mSampleMask >= 0;
+    }
+
+    /**
+     * Returns the name of the class which declares the method.
+     */
+    public String className() {
+        return mClassName;
+    }
+
+    /**
+     * Returns the name of the method.
+     */
+    public String methodName() {
+        return mMethodName;
+    }
+
+    /**
+     * Returns the descriptor of the method, which specifies the parameter types and the
+     * return type.
+     */
+    public String descriptor() {
+        return mDescriptor;
+    }
+
+    /**
+     * Returns the number of times the method was invoked.
+     */
+    public long invocations() {
+        return mInvocations.sum();
+    }
+
+    /**
+     * Returns the number of invocations whose latency was sampled.
+     */
+    public long samples() {
+        return mSamples == null ? 0 : mSamples.sum();
+    }
+
+    /**
+     * Returns the sum of all latency samples, in nanoseconds.
+     */
+    public long latencySum() {
+        return mLatencySum == null ? 0 : mLatencySum.sum();
+    }
+
+    /**
+     * Returns the latency histogram, which has 64 buckets. Returns an empty array if latency
+     * isn't sampled.
+     */
+    public long[] latencyHistogram() {
+        LongAdder[] histogram = mHistogram;
+        if (histogram == null) {
+            return new long[0];
+        }
+        var counts = new long[histogram.length];
+        for (int i=0; i<counts.length; i++) {
+            counts[i] = histogram[i].sum();
+        }
+        return counts;
+    }
+
+    /**
+     * Resets all the counters to zero.
+     */
+    public void reset() {
+        mInvocations.reset();
+        if (mHistogram != null) {
+            mSamples.reset();
+            mLatencySum.reset();
+            for (LongAdder bucket : mHistogram) {
+                bucket.reset();
+            }
+        }
+    }
+
+    /**
+     * Called by instrumented code when the method is entered.
+     *
+     * @return a start time if the latency should be sampled, or else zero
+     * @hidden
+     */
+    public long enter() {
+        mInvocations.increment();
+        int mask = mSampleMask;
+        if (mask < 0 || (mask != 0 && (ThreadLocalRandom.current().nextInt() & mask) != 0)) {
+            return 0;
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Called by instrumented code when the method exits, normally or by throwing an
+     * exception.
+     *
+     * @param start the value returned by the enter method
+     * @hidden
+     */
+    public void exit(long start) {
+        if (start != 0) {
+            long latency = Math.max(0, System.nanoTime() - start);
+            mSamples.increment();
+            mLatencySum.add(latency);
+            mHistogram[Math.max(0, 63 - Long.numberOfLeadingZeros(latency))].increment();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MethodStats {className=" + mClassName + ", methodName=" + mMethodName +
+            ", descriptor=" + mDescriptor + ", invocations=" + invocations() +
+            ", samples=" + samples() + ", latencySum=" + latencySum() + '}';
+    }
+}
@@ -22,8 +22,6 @@ import java.lang.invoke.MethodType;
 
 import java.lang.reflect.Modifier;
 
-import java.util.HashMap;
-
 /**
  * Implements a class in which all of the inherited abstract methods do nothing. For any
  * methods which return a primitive value or an object, 0 or null is returned. Methods which
@@ -33,7 +31,18 @@ import java.util.HashMap;
  * @author Brian S. O'Neill
  */
 final class StubMaker {
-    private static final HashMap<Class, MethodHandle> CACHE = new HashMap<>();
+    // Note that the stub class might be made more than once when threads race to compute the
+    // value. This is harmless, and it's preferred over holding a lock while making the class.
+    private static final ClassValue<MethodHandle> CACHE = new ClassValue<>() {
+        @Override
+        protected MethodHandle computeValue(Class<?> clazz) {
+            try {
+                return make(clazz);
+            } catch (Exception e) {
+                throw TheClassMaker.toUnchecked(e);
+            }
+        }
+    };
 
     /**
      * Returns a new instance for the stub class.
@@ -52,15 +61,8 @@ final class StubMaker {
     /**
      * Returns a no-arg constructor for the stub class.
      */
-    private static synchronized MethodHandle from(Class clazz) throws Exception {
-        MethodHandle mh = CACHE.get(clazz);
-
-        if (mh == null) {
-            mh = make(clazz);
-            CACHE.put(clazz, mh);
-        }
-
-        return mh;
+    private static MethodHandle from(Class clazz) {
+        return CACHE.get(clazz);
     }
 
     private static MethodHandle make(Class clazz) throws Exception {
@@ -24,9 +24,12 @@ import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.TreeMap;
 
 /**
  * Generates more types of switch statements.
@@ -50,6 +53,121 @@ public final class Switcher {
         doSwitchObject(false, false, mm, condition, defaultLabel, keys, labels);
     }
 
+    static void switchLong(MethodMaker mm, Variable condition,
+                           Label defaultLabel, long[] keys, Label... labels)
+    {
+        if (keys.length != labels.length) {
+            throw new IllegalArgumentException("Number of cases and labels doesn't match");
+        }
+
+        if (keys.length == 2 && keys[0] == keys[1]) {
+            // Larger sets of cases are checked when they're sorted.
+            throw new IllegalArgumentException("Duplicate switch cases: " + keys[0]);
+        }
+
+        // Copy into a local variable, which also checks the type. The value is examined
+        // multiple times, and so it must not be a field.
+        Variable value = mm.var(long.class).set(condition);
+
+        if (keys.length <= 2) {
+            for (int i=0; i<keys.length; i++) {
+                value.ifEq(keys[i], labels[i]);
+            }
+            defaultLabel.goto_();
+            return;
+        }
+
+        // Sort the cases, carrying along the labels.
+
+        var order = new Integer[keys.length];
+        for (int i=0; i<order.length; i++) {
+            order[i] = i;
+        }
+        final long[] fkeys = keys;
+        Arrays.sort(order, (a, b) -> Long.compare(fkeys[a], fkeys[b]));
+
+        keys = new long[order.length];
+        var newLabels = new Label[order.length];
+        for (int i=0; i<order.length; i++) {
+            keys[i] = fkeys[order[i]];
+            newLabels[i] = labels[order[i]];
+            if (i > 0 && keys[i] == keys[i - 1]) {
+                throw new IllegalArgumentException("Duplicate switch cases: " + keys[i]);
+            }
+        }
+        labels = newLabels;
+
+        long min = keys[0];
+        long max = keys[keys.length - 1];
+
+        long bias;
+        if (min >= Integer.MIN_VALUE && max <= Integer.MAX_VALUE) {
+            bias = 0;
+        } else if (max - min >= 0 && max - min <= Integer.MAX_VALUE) {
+            // The range fits, but it needs to be shifted.
+            bias = min;
+        } else {
+            // Switch on the high half of the value, and then switch on the low half.
+            switchLongSplit(value, defaultLabel, keys, labels);
+            return;
+        }
+
+        var cases = new int[keys.length];
+        for (int i=0; i<cases.length; i++) {
+            cases[i] = (int) (keys[i] - bias);
+        }
+
+        value.ifLt(min, defaultLabel);
+        value.ifGt(max, defaultLabel);
+
+        if (bias != 0) {
+            value = value.sub(bias);
+        }
+
+        // The int switch selects a tableswitch or lookupswitch based on the density.
+        value.cast(int.class).switch_(defaultLabel, cases, labels);
+    }
+
+    /**
+     * @param keys must be sorted and unique
+     */
+    private static void switchLongSplit(Variable value, Label defaultLabel,
+                                        long[] keys, Label[] labels)
+    {
+        MethodMaker mm = value.methodMaker();
+
+        var groups = new TreeMap<Integer, List<Integer>>();
+        for (int i=0; i<keys.length; i++) {
+            groups.computeIfAbsent((int) (keys[i] >> 32), k -> new ArrayList<>()).add(i);
+        }
+
+        var highCases = new int[groups.size()];
+        var highLabels = new Label[highCases.length];
+
+        int i = 0;
+        for (Integer high : groups.keySet()) {
+            highCases[i] = high;
+            highLabels[i++] = mm.label();
+        }
+
+        value.shr(32).cast(int.class).switch_(defaultLabel, highCases, highLabels);
+
+        i = 0;
+        for (List<Integer> group : groups.values()) {
+            highLabels[i++].here();
+
+            var lowCases = new int[group.size()];
+            var lowLabels = new Label[lowCases.length];
+            for (int j=0; j<lowCases.length; j++) {
+                int index = group.get(j);
+                lowCases[j] = (int) keys[index];
+                lowLabels[j] = labels[index];
+            }
+
+            value.cast(int.class).switch_(defaultLabel, lowCases, lowLabels);
+        }
+    }
+
     static void switchEnum(boolean external, MethodMaker mm, Variable condition,
                            Label defaultLabel, Enum<?>[] keys, Label... labels)
     {
@@ -72,6 +190,17 @@ public final class Switcher {
             }
         }
 
+        if (!external && isStable(mm, type)) {
+            // The generated class is linked with the same enum class, and so the ordinals
+            // cannot change. Switch on them directly, without a bootstrap method or a mapper.
+            var ordinalCases = new int[keys.length];
+            for (int i=0; i<ordinalCases.length; i++) {
+                ordinalCases[i] = keys[i].ordinal();
+            }
+            condition.invoke("ordinal").switch_(defaultLabel, ordinalCases, labels);
+            return;
+        }
+
         if (NO_SWITCH_BOOTSTRAPS || Runtime.version().feature() < 21) {
             if (!external) {
                 doSwitchObject(true, false, mm, condition, defaultLabel, keys, labels);
@@ -123,6 +252,17 @@ public final class Switcher {
         mm.new_(NullPointerException.class).throw_();
     }
 
+    /**
+     * Returns true if the class being made resolves the given type to the same class.
+     */
+    private static boolean isStable(MethodMaker mm, Class<?> type) {
+        try {
+            return Class.forName(type.getName(), false, mm.classMaker().classLoader()) == type;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
     static void switchObject(MethodMaker mm, Variable condition,
                              Label defaultLabel, Object[] keys, Label... labels)
     {
@@ -25,10 +25,15 @@ import java.lang.invoke.MethodHandles;
 
 import java.lang.reflect.Modifier;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.HexFormat;
 import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -77,6 +82,8 @@ final class TheClassMaker extends Attributed implements ClassMaker, Typed {
 
     private ArrayList<TheMethodMaker> mRecordCtors;
 
+    private HashMap<String, BaseType> mLazyConstants;
+
     // Accessed by ConstantsRegistry.
     Object mExactConstants;
 
@@ -85,6 +92,27 @@ final class TheClassMaker extends Attributed implements ClassMaker, Typed {
     // Accessed by Switcher.
     Map<Class<?>, Class<?>> mEnumMappers;
 
+    // Accessed by ArrayConstants.
+    Set<Class<?>> mArrayDecoders;
+
+    private boolean mDedupe;
+
+    // When deduplicating, these capture the normalized constant pool and the offset at which
+    // the rest of the class file starts.
+    private byte[] mNormalizedPool;
+    private int mPoolEnd;
+
+    // When minimizing, the omitted attributes refer to scratch constant pools.
+    private boolean mMinimize;
+    private ArrayList<Attribute> mOmittedAttributes;
+    private int mMinimizedBytes;
+
+    // Is -2 if not instrumenting, -1 if only counting invocations, or else a sample mask.
+    private int mSampleMask = -2;
+
+    // Statistics which are registered once the instrumented class is defined.
+    private ArrayList<MethodStats> mMethodStats;
+
     static TheClassMaker begin(boolean external, String className, boolean explicit,
                                ClassLoader parentLoader, Object key, MethodHandles.Lookup lookup)
     {
@@ -401,6 +429,51 @@ final class TheClassMaker extends Attributed implements ClassMaker, Typed {
         return mm;
     }
 
+    @Override
+    public MethodMaker addLazyConstant(Object type, String name) {
+        requireNonNull(type);
+        requireNonNull(name);
+
+        checkFinished();
+
+        BaseType tType = typeFrom(type);
+        if (tType == BaseType.VOID) {
+            throw new IllegalArgumentException("Void lazy constant");
+        }
+
+        if (mLazyConstants == null) {
+            mLazyConstants = new HashMap<>();
+        } else if (mLazyConstants.containsKey(name)) {
+            throw new IllegalStateException("Lazy constant is already defined: " + name);
+        }
+
+        MethodMaker mm = addMethod(tType, lazyMethodName(name)).private_().static_().synthetic();
+
+        mLazyConstants.put(name, tType);
+
+        return mm;
+    }
+
+    /**
+     * Returns the type of a lazy constant.
+     *
+     * @throws IllegalStateException if not found
+     */
+    BaseType lazyConstantType(String name) {
+        BaseType type;
+        if (mLazyConstants == null || (type = mLazyConstants.get(name)) == null) {
+            throw new IllegalStateException("Lazy constant not found: " + name);
+        }
+        return type;
+    }
+
+    /**
+     * Returns the name of the method which computes a lazy constant.
+     */
+    static String lazyMethodName(String name) {
+        return "lazy$" + name;
+    }
+
     @Override
     public MethodMaker asRecord() {
         return AsRecord.apply(this);
@@ -505,14 +578,101 @@ final class TheClassMaker extends Attributed implements ClassMaker, Typed {
         return addAnnotationMaker(new TheAnnotationMaker(this, annotationType), visible);
     }
 
+    @Override
+    public ClassMaker dedupe() {
+        checkFinished();
+        mDedupe = true;
+        return this;
+    }
+
     @Override
     public ClassMaker sourceFile(String fileName) {
         checkFinished();
-        ConstantPool cp = mConstants;
-        addAttribute(new Attribute.Constant(cp, "SourceFile", cp.addUTF8(fileName)));
+        ConstantPool cp = debugConstants();
+        addDebugAttribute(this, new Attribute.Constant(cp, "SourceFile", cp.addUTF8(fileName)));
         return this;
     }
 
+    @Override
+    public ClassMaker minimize() {
+        checkFinished();
+        mMinimize = true;
+        return this;
+    }
+
+    @Override
+    public int minimizedBytes() {
+        return mMinimizedBytes;
+    }
+
+    @Override
+    public ClassMaker instrument(int latencySampleRate) {
+        checkFinished();
+        if (latencySampleRate < 0 || (latencySampleRate & (latencySampleRate - 1)) != 0) {
+            throw new IllegalArgumentException
+                ("Sample rate isn't zero or a power of two: " + latencySampleRate);
+        }
+        if (mExternal) {
+            throw new IllegalStateException("Cannot instrument an external class");
+        }
+        mSampleMask = latencySampleRate - 1;
+        return this;
+    }
+
+    /**
+     * Returns the constant pool to use for attributes which are only needed for debugging
+     * and reflection. When minimizing, a new scratch pool is returned.
+     */
+    ConstantPool debugConstants() {
+        return mMinimize ? new ConstantPool() : mConstants;
+    }
+
+    /**
+     * Adds an attribute which was created using the {@link #debugConstants} pool, unless
+     * it refers to a scratch pool, in which case the attribute is omitted.
+     */
+    void addDebugAttribute(Attributed owner, Attribute attr) {
+        if (attr.mConstants == mConstants) {
+            owner.addAttribute(attr);
+        } else {
+            if (mOmittedAttributes == null) {
+                mOmittedAttributes = new ArrayList<>();
+            }
+            mOmittedAttributes.add(attr);
+        }
+    }
+
+    /**
+     * Computes the number of bytes saved by omitting attributes, which must be called once
+     * the constant pool is complete.
+     */
+    private void computeMinimizedBytes() {
+        List<Attribute> omitted = mOmittedAttributes;
+        if (omitted == null) {
+            return;
+        }
+
+        mOmittedAttributes = null;
+
+        int saved = 0;
+        var values = new HashSet<String>();
+
+        for (Attribute attr : omitted) {
+            // Include the attribute name and length fields.
+            saved += 6 + attr.length();
+            attr.mConstants.collectUTF8(values);
+        }
+
+        // Only count the constants which aren't needed by anything else.
+        for (String value : values) {
+            if (!mConstants.hasUTF8(value)) {
+                saved += 3 + BytesOut.utfLength(value);
+            }
+        }
+
+        mMinimizedBytes = saved;
+    }
+
     @Override
     public ClassLoader classLoader() {
         return mLookup != null ? mLookup.lookupClass().getClassLoader() : mInjectorGroup;
@@ -576,11 +736,19 @@ final class TheClassMaker extends Attributed implements ClassMaker, Typed {
 
     @Override
     public Class<?> finish() {
+        // Classes which are part of a nest cannot be replaced by an equivalent class, because
+        // the other nest members refer to them by name.
+        mDedupe &= mLookup == null && mNestMembers == null && mInnerClasses == null;
+
         byte[] bytes = doFinishBytes();
 
         Class clazz;
         if (mLookup == null) {
-            clazz = mInjector.define(mInjectorGroup, name(), bytes);
+            if (mDedupe && mExactConstants == null) {
+                clazz = finishDeduped(bytes);
+            } else {
+                clazz = mInjector.define(mInjectorGroup, name(), bytes);
+            }
         } else {
             try {
                 clazz = mLookup.defineClass(bytes);
@@ -590,6 +758,33 @@ final class TheClassMaker extends Attributed implements ClassMaker, Typed {
         }
 
         ConstantsRegistry.finish(this, mLookup, clazz);
+        registerStats(clazz);
+
+        return clazz;
+    }
+
+    private Class<?> finishDeduped(byte[] bytes) {
+        String key;
+        try {
+            var md = MessageDigest.getInstance("SHA-256");
+            md.update(mNormalizedPool);
+            md.update(bytes, mPoolEnd, bytes.length - mPoolEnd);
+            key = HexFormat.of().formatHex(md.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            mNormalizedPool = null;
+        }
+
+        ClassInjector.Group group = mInjectorGroup;
+
+        Class<?> clazz = group.findDeduped(key);
+
+        if (clazz != null) {
+            mInjector.unreserve(name());
+        } else {
+            clazz = group.addDeduped(key, mInjector.define(group, name(), bytes));
+        }
 
         return clazz;
     }
@@ -639,12 +834,49 @@ final class TheClassMaker extends Attributed implements ClassMaker, Typed {
      * @param strong pass true to maintain a strong reference to the class
      */
     MethodHandles.Lookup finishHidden(boolean strong) {
-        MethodHandles.Lookup lookup = mLookup;
+        MethodHandles.Lookup lookup = hiddenLookup();
 
-        if (lookup == null) {
-            lookup = mInjectorGroup.lookup(name());
+        byte[] bytes = doFinishBytes();
+
+        MethodHandles.Lookup result;
+        try {
+            Object classData = mExactConstants;
+            result = defineHidden(lookup, bytes, classData, strong);
+            if (classData != null) {
+                mExactConstants = null;
+            }
+        } finally {
+            mInjector.unreserve(name());
+        }
+
+        ConstantsRegistry.finish(this, lookup, result.lookupClass());
+        registerStats(result.lookupClass());
+
+        return result;
+    }
+
+    private void registerStats(Class<?> clazz) {
+        if (mMethodStats != null) {
+            MethodStats.register(clazz, mMethodStats);
+            mMethodStats = null;
         }
+    }
+
+    /**
+     * Returns the lookup which is used for defining hidden classes.
+     */
+    MethodHandles.Lookup hiddenLookup() {
+        MethodHandles.Lookup lookup = mLookup;
+        return lookup != null ? lookup : mInjectorGroup.lookup(name());
+    }
 
+    /**
+     * @param classData can be null
+     * @param strong pass true to maintain a strong reference to the class
+     */
+    static MethodHandles.Lookup defineHidden(MethodHandles.Lookup lookup, byte[] bytes,
+                                             Object classData, boolean strong)
+    {
         MethodHandles.Lookup.ClassOption[] options;
         if (!strong) {
             options = new MethodHandles.Lookup.ClassOption[] {
@@ -657,26 +889,15 @@ final class TheClassMaker extends Attributed implements ClassMaker, Typed {
             };
         }
 
-        byte[] bytes = doFinishBytes();
-
-        MethodHandles.Lookup result;
         try {
-            Object classData = mExactConstants;
             if (classData == null) {
-                result = lookup.defineHiddenClass(bytes, false, options);
+                return lookup.defineHiddenClass(bytes, false, options);
             } else {
-                result = lookup.defineHiddenClassWithClassData(bytes, classData, false, options);
-                mExactConstants = null;
+                return lookup.defineHiddenClassWithClassData(bytes, classData, false, options);
             }
         } catch (Exception e) {
             throw toUnchecked(e);
-        } finally {
-            mInjector.unreserve(name());
         }
-
-        ConstantsRegistry.finish(this, lookup, result.lookupClass());
-
-        return result;
     }
 
     @Override
@@ -735,6 +956,22 @@ final class TheClassMaker extends Attributed implements ClassMaker, Typed {
 
         int version = 0x0000_003d; // Java 17.
 
+        if (mSampleMask >= -1 && mMethods != null) {
+            // Skip constructors, static initializers, and synthetic methods.
+            mMethodStats = new ArrayList<>();
+            for (TheMethodMaker mm : mMethods) {
+                if ((mm.mModifiers & 0x1000) == 0 && !mm.name().startsWith("<")) {
+                    var stats = new MethodStats(name(), mm.name(), mm.mMethod.descriptor(),
+                                                mSampleMask);
+                    if (mm.instrument(stats)) {
+                        mMethodStats.add(stats);
+                    }
+                }
+            }
+        }
+
+        layoutConstants();
+
         if (mRecordCtors != null) {
             TheMethodMaker.doFinish(mRecordCtors);
         }
@@ -758,8 +995,17 @@ final class TheClassMaker extends Attributed implements ClassMaker, Typed {
         out.writeInt(0xCAFEBABE);
         out.writeInt(version);
 
+        computeMinimizedBytes();
+
         mConstants.writeTo(out);
 
+        if (mDedupe) {
+            var pool = new BytesOut(null, out.size());
+            mConstants.writeNormalizedTo(pool, name().replace('.', '/'));
+            mNormalizedPool = pool.toByteArray();
+            mPoolEnd = out.size();
+        }
+
         out.writeShort(mModifiers);
 
         out.writeShort(mThisClass.mIndex);
@@ -795,6 +1041,48 @@ final class TheClassMaker extends Attributed implements ClassMaker, Typed {
         writeAttributesTo(out);
     }
 
+    /**
+     * Adds the constants which are loaded by LDC instructions, and then renumbers the
+     * constant pool if necessary, such that the most frequently loaded constants have
+     * indexes which can be encoded by the narrow form of the instruction.
+     */
+    private void layoutConstants() {
+        var counts = new IdentityHashMap<ConstantPool.Constant, Integer>();
+        var counted = new IdentityHashMap<TheMethodMaker, Boolean>();
+
+        for (List<TheMethodMaker> list : List.of(listOf(mRecordCtors), listOf(mClinitMethods),
+                                                 listOf(mMethods)))
+        {
+            for (TheMethodMaker mm : list) {
+                if (counted.put(mm, true) == null) {
+                    mm.countConstants(counts);
+                }
+            }
+        }
+
+        var constants = new ArrayList<ConstantPool.Constant>(counts.keySet());
+
+        constants.sort((a, b) -> {
+            int cmp = Integer.compare(counts.get(b), counts.get(a));
+            return cmp != 0 ? cmp : Integer.compare(a.mIndex, b.mIndex);
+        });
+
+        if (constants.size() > 255) {
+            constants.subList(255, constants.size()).clear();
+        }
+
+        for (ConstantPool.Constant c : constants) {
+            if (c.mIndex >= 256) {
+                mConstants.renumber(constants);
+                break;
+            }
+        }
+    }
+
+    private static List<TheMethodMaker> listOf(List<TheMethodMaker> list) {
+        return list == null ? List.of() : list;
+    }
+
     static void checkSize(Map<?,?> c, int maxSize, String desc) {
         if (c != null) {
             checkSize(c.keySet(), maxSize, desc);
@@ -841,6 +1129,16 @@ final class TheClassMaker extends Attributed implements ClassMaker, Typed {
         return mBootstrapMethods.add(method, args);
     }
 
+    /**
+     * Adds a constant which can be patched later, as used by ClassTemplate.
+     *
+     * @param value initial value, which must be an Integer, Long, Float, Double or String
+     */
+    ConstantPool.Constant addPlaceholder(Object value) {
+        checkFinished();
+        return mConstants.addPlaceholder(value);
+    }
+
     boolean allowExactConstants() {
         return !mExternal;
     }
@@ -148,6 +148,39 @@ class TheMethodMaker extends ClassMember implements MethodMaker {
         }
     }
 
+    /**
+     * Prepends code which calls MethodStats.enter, and if sampling latency, the rest of the
+     * method is wrapped by a finally handler which calls MethodStats.exit.
+     *
+     * @return false if the method has no code to instrument
+     */
+    boolean instrument(MethodStats stats) {
+        if (mFinished != 0 || (mModifiers & (Modifier.ABSTRACT | Modifier.NATIVE)) != 0) {
+            return false;
+        }
+
+        var start = new Lab();
+        start.mNext = mFirstOp;
+        mFirstOp = start;
+        if (mLastOp == null) {
+            mLastOp = start;
+        }
+
+        if (!stats.isSampled()) {
+            start.insert(() -> var(MethodStats.class).setExact(stats).invoke("enter"));
+        } else {
+            var statsVar = var(MethodStats.class);
+            var startTime = var(long.class);
+            Label bodyStart = start.insert(() -> {
+                statsVar.setExact(stats);
+                startTime.set(statsVar.invoke("enter"));
+            });
+            finally_(bodyStart, () -> statsVar.invoke("exit", startTime));
+        }
+
+        return true;
+    }
+
     void doFinish() {
         if (mFinished != 0 || (mModifiers & (Modifier.ABSTRACT | Modifier.NATIVE)) != 0) {
             return;
@@ -224,6 +257,9 @@ class TheMethodMaker extends ClassMember implements MethodMaker {
 
         Attribute.LineNumberTable lineNumberTable;
 
+        // Is a scratch pool when minimizing.
+        ConstantPool debugConstants = mClassMaker.debugConstants();
+
         Op lastAppendedOp = null;
 
         while (true) {
@@ -243,7 +279,7 @@ class TheMethodMaker extends ClassMember implements MethodMaker {
 
                     if (lineNum >= 0 && lineNum != lastLineNum) {
                         if (lineNumberTable == null) {
-                            lineNumberTable = new Attribute.LineNumberTable(mConstants);
+                            lineNumberTable = new Attribute.LineNumberTable(debugConstants);
                         }
                         lineNumberTable.add(mCodeLen, lineNum);
                         lastLineNum = lineNum;
@@ -279,7 +315,7 @@ class TheMethodMaker extends ClassMember implements MethodMaker {
         Attribute.LocalVariableTable localVariableTypeTable = null;
 
         {
-            ConstantPool constants = mConstants;
+            ConstantPool constants = debugConstants;
 
             for (LocalVar v : mVars) {
                 int slot = v.mSlot;
@@ -340,15 +376,15 @@ class TheMethodMaker extends ClassMember implements MethodMaker {
         mParams = null;
 
         if (lineNumberTable != null && lineNumberTable.finish(mCodeLen)) {
-            codeAttr.addAttribute(lineNumberTable);
+            mClassMaker.addDebugAttribute(codeAttr, lineNumberTable);
         }
 
         if (localVariableTable != null && localVariableTable.finish(mCodeLen)) {
-            codeAttr.addAttribute(localVariableTable);
+            mClassMaker.addDebugAttribute(codeAttr, localVariableTable);
         }
 
         if (localVariableTypeTable != null && localVariableTypeTable.finish(mCodeLen)) {
-            codeAttr.addAttribute(localVariableTypeTable);
+            mClassMaker.addDebugAttribute(codeAttr, localVariableTypeTable);
         }
 
         addAttribute(codeAttr);
@@ -360,6 +396,66 @@ class TheMethodMaker extends ClassMember implements MethodMaker {
         return new IllegalStateException(message + " (method: \"" + name() + "\")");
     }
 
+    /**
+     * Adds the constants which will be loaded by LDC instructions, and counts how many
+     * times each one is loaded. Must be called before finishing.
+     */
+    void countConstants(Map<ConstantPool.Constant, Integer> counts) {
+        for (Op op = mFirstOp; op != null; op = op.mNext) {
+            if (OPTIMIZE && op.mNext instanceof StoreVarOp sop && sop.unusedVar()) {
+                // The constant won't be loaded, so don't add it.
+                continue;
+            }
+            ConstantPool.Constant constant;
+            if (op instanceof BasicConstantOp bop) {
+                constant = ldcConstant(bop.mValue);
+            } else if (op instanceof ExplicitConstantOp eop) {
+                int typeCode = eop.mType.typeCode();
+                constant = (typeCode == T_DOUBLE || typeCode == T_LONG) ? null : eop.mConstant;
+            } else {
+                continue;
+            }
+            if (constant != null) {
+                counts.merge(constant, 1, Integer::sum);
+            }
+        }
+    }
+
+    /**
+     * Returns the constant which is loaded by an LDC instruction when pushing the given
+     * value, or else null if another instruction is used.
+     */
+    private ConstantPool.Constant ldcConstant(Object value) {
+        if (value instanceof String str) {
+            return mConstants.addString(str);
+        } else if (value instanceof Class clazz) {
+            return mConstants.addClass(BaseType.from(clazz));
+        } else if (value instanceof BaseType t) {
+            return mConstants.addClass(t);
+        } else if (value instanceof MethodType mt) {
+            return mConstants.addMethodType(mt);
+        } else if (value instanceof MethodHandleInfo info) {
+            return mConstants.addMethodHandle(info);
+        }
+
+        int intValue;
+        if (value instanceof Integer num) {
+            intValue = num;
+        } else if (value instanceof Character c) {
+            intValue = c;
+        } else if (value instanceof Float num) {
+            float v = num;
+            if (Float.compare(v, 0.0f) == 0 || v == 1 || v == 2) {
+                return null;
+            }
+            return mConstants.addFloat(v);
+        } else {
+            return null;
+        }
+
+        return (intValue >= -32768 && intValue < 32768) ? null : mConstants.addInteger(intValue);
+    }
+
     /**
      * Stitch methods together and finish as one. List can be null or empty.
      */
@@ -549,13 +645,13 @@ class TheMethodMaker extends ClassMember implements MethodMaker {
             (mMethod.returnType(), mMethod.name(), mMethod.paramTypes());
 
         for (BaseType s = thisType.superType(); s != null; s = s.superType()) {
-            if (override(s.methods().get(key))) {
+            if (override(s.method(key))) {
                 return this;
             }
         }
 
         for (BaseType iface : thisType.interfaces()) {
-            if (override(iface.methods().get(key))) {
+            if (override(iface.method(key))) {
                 return this;
             }
         }
@@ -762,6 +858,19 @@ class TheMethodMaker extends ClassMember implements MethodMaker {
         return field(mClassMaker.type(), name);
     }
 
+    @Override
+    public Variable lazyConstant(String name) {
+        BaseType type = mClassMaker.lazyConstantType(name);
+        Variable handle = var(mClassMaker).methodHandle
+            (type, TheClassMaker.lazyMethodName(name));
+        return var(ConstantBootstraps.class).condy("invoke", handle).invoke(type, name);
+    }
+
+    @Override
+    public Variable arrayConstant(Object array) {
+        return ArrayConstants.load(this, array);
+    }
+
     FieldVar field(BaseType type, String name) {
         BaseType.Field field = findField(type, name);
         LocalVar instance = field.isStatic() ? null : this_();
@@ -1201,7 +1310,7 @@ class TheMethodMaker extends ClassMember implements MethodMaker {
      */
     private Variable catch_(BaseType catchType, Lab startLab, Lab endLab, Object type) {
         ConstantPool.C_Class catchClass = mConstants.addClass(catchType);
-        int smCatchCode = SM_OBJECT | catchClass.mIndex << 8;
+        var handlerLab = new HandlerLab(catchType, catchClass);
 
         // Generated catch class should "catch all" when given type is null. Granted, it's
         // always Throwable, but it matches what's generated for finally blocks.
@@ -1209,7 +1318,6 @@ class TheMethodMaker extends ClassMember implements MethodMaker {
             catchClass = null;
         }
 
-        var handlerLab = new HandlerLab(catchType, smCatchCode);
 
         // Insert an operation at the start of the handled block, to capture the set of defined
         // local variables during flow analysis.
@@ -1395,15 +1503,28 @@ class TheMethodMaker extends ClassMember implements MethodMaker {
 
     @Override
     public void finally_(Label start, Runnable handler) {
-        doFinally(start, handler);
+        doFinally(start, handler, false);
     }
 
     @Override
     public void finally_(Label start, Consumer<Variable> handler) {
-        doFinally(start, handler);
+        doFinally(start, handler, false);
+    }
+
+    @Override
+    public void sharedFinally(Label start, Runnable handler) {
+        doFinally(start, handler, true);
+    }
+
+    @Override
+    public void sharedFinally(Label start, Consumer<Variable> handler) {
+        doFinally(start, handler, true);
     }
 
-    private void doFinally(Label start, Object handler) {
+    /**
+     * @param shared when true, generate the handler once for all non-exceptional exits
+     */
+    private void doFinally(Label start, Object handler, boolean shared) {
         Lab startLab = target(start);
         Lab endLab = new Lab();
         addOp(endLab);
@@ -1485,6 +1606,21 @@ class TheMethodMaker extends ClassMember implements MethodMaker {
             prev = op;
         }
 
+        if (shared) {
+            int numExits = exits.size();
+            if (!lastTransformed) {
+                numExits++;
+            }
+            if (retHandler != null) {
+                numExits++;
+            }
+            if (numExits > 1) {
+                sharedFinally(startLab, endLab, handler, lastTransformed,
+                              exits, retHandler, retVar);
+                return;
+            }
+        }
+
         if (!lastTransformed) {
             // Add a finally handler here, and then go past everything else.
             callHandler(handler, null);
@@ -1522,6 +1658,92 @@ class TheMethodMaker extends ClassMember implements MethodMaker {
         }
     }
 
+    /**
+     * Generates the finally handler once for all the non-exceptional exits, and once for the
+     * "catch all" exception handler. Each exit stores an index into a local variable and
+     * branches to the shared handler, which then switches on the index.
+     *
+     * @param exits maps final targets to handler labels
+     * @param retHandler is null if no return exits
+     * @param retVar is null if no return exits or if the method returns void
+     */
+    private void sharedFinally(Lab startLab, Lab endLab, Object handler,
+                               boolean lastTransformed, Map<Lab, Lab> exits,
+                               Lab retHandler, LocalVar retVar)
+    {
+        var exitVar = new LocalVar(INT);
+        Lab sharedLab = new Lab();
+
+        // Final targets, indexed by the exit index.
+        var targets = new ArrayList<Label>();
+
+        Lab veryEnd = null;
+
+        // The return variable is only assigned by the return exits, but it must be definitely
+        // assigned when the shared handler is reached. Clear it for all other exits.
+
+        if (!lastTransformed) {
+            exitVar.set(targets.size());
+            if (retVar != null) {
+                retVar.clear();
+            }
+            veryEnd = new Lab();
+            targets.add(veryEnd);
+            goto_(sharedLab);
+        }
+
+        // Add the "catch all" exception handler.
+        {
+            var exVar = catch_(startLab, endLab, (Object) null);
+            callHandler(handler, exVar);
+            exVar.throw_();
+        }
+
+        for (Map.Entry<Lab, Lab> e : exits.entrySet()) {
+            e.getValue().here();
+            exitVar.set(targets.size());
+            if (retVar != null) {
+                retVar.clear();
+            }
+            targets.add(e.getKey());
+            goto_(sharedLab);
+        }
+
+        Lab retLab = null;
+
+        if (retHandler != null) {
+            retHandler.here();
+            exitVar.set(targets.size());
+            retLab = new Lab();
+            targets.add(retLab);
+            // Flows into the shared handler.
+        }
+
+        sharedLab.here();
+        callHandler(handler, null);
+
+        // The last target is the default, and so it doesn't need a case.
+        var cases = new int[targets.size() - 1];
+        for (int i=0; i<cases.length; i++) {
+            cases[i] = i;
+        }
+        exitVar.switch_(targets.get(cases.length), cases,
+                        targets.subList(0, cases.length).toArray(new Label[cases.length]));
+
+        if (retLab != null) {
+            retLab.here();
+            if (retVar == null) {
+                doReturn();
+            } else {
+                return_(retVar);
+            }
+        }
+
+        if (veryEnd != null) {
+            veryEnd.here();
+        }
+    }
+
     @SuppressWarnings("unchecked")
     private static void callHandler(Object handler, Variable exVar) {
         if (handler instanceof Runnable r) {
@@ -2788,6 +3010,16 @@ class TheMethodMaker extends ClassMember implements MethodMaker {
         return mConstants.addDynamicConstant(bi, "_", type);
     }
 
+    /**
+     * Returns an unmodifiable variable which loads a constant from the constant pool of this
+     * maker's class.
+     *
+     * @param type non-null
+     */
+    Variable constantVar(BaseType type, ConstantPool.Constant constant) {
+        return new ConstantVar(type, constant);
+    }
+
     /**
      * @param type non-null
      */
@@ -3712,11 +3944,11 @@ class TheMethodMaker extends ClassMember implements MethodMaker {
      */
     final class HandlerLab extends Lab {
         private final BaseType mCatchType;
-        private final int mSmCatchCode;
+        private final ConstantPool.C_Class mCatchClass;
 
-        HandlerLab(BaseType catchType, int smCatchCode) {
+        HandlerLab(BaseType catchType, ConstantPool.C_Class catchClass) {
             mCatchType = catchType;
-            mSmCatchCode = smCatchCode;
+            mCatchClass = catchClass;
         }
 
         @Override
@@ -3733,7 +3965,8 @@ class TheMethodMaker extends ClassMember implements MethodMaker {
 
         @Override
         int[] stackCodes(TheMethodMaker m) {
-            return new int[] {mSmCatchCode};
+            // Compute the code now, because the constant index can change until finished.
+            return new int[] {SM_OBJECT | mCatchClass.mIndex << 8};
         }
     }
 
@@ -4871,6 +5104,11 @@ class TheMethodMaker extends ClassMember implements MethodMaker {
             addSwitchOp(defaultLab, cases, labs);
         }
 
+        @Override
+        public void switch_(Label defaultLabel, long[] cases, Label... labels) {
+            Switcher.switchLong(TheMethodMaker.this, this, defaultLabel, cases, labels);
+        }
+
         // Note: When defining new kinds of switch methods, be sure to define overrides in the
         // BaseFieldVar class, to ensure that the switch is acting upon a stable local variable
         // instead of a field. This prevents problems caused by the field value changing while
@@ -5732,7 +5970,8 @@ class TheMethodMaker extends ClassMember implements MethodMaker {
         public ParamVar name(String name) {
             super.name(name);
             if (this != mThisVar) {
-                mparams().setName(paramIndex(), mConstants.addUTF8(name));
+                Attribute.MethodParameters mparams = mparams();
+                mparams.setName(paramIndex(), mparams.mConstants.addUTF8(name));
             }
             return this;
         }
@@ -5773,9 +6012,10 @@ class TheMethodMaker extends ClassMember implements MethodMaker {
                 if (mThisVar != null) {
                     numParams--;
                 }
-                mparams = new Attribute.MethodParameters(mConstants, numParams);
+                mparams = new Attribute.MethodParameters
+                    (mClassMaker.debugConstants(), numParams);
                 mMethodParameters = mparams;
-                addAttribute(mparams);
+                mClassMaker.addDebugAttribute(TheMethodMaker.this, mparams);
             }
 
             return mparams;
@@ -6033,6 +6273,11 @@ class TheMethodMaker extends ClassMember implements MethodMaker {
     }
 
     abstract class BaseFieldVar extends OwnedVar implements Field {
+        @Override
+        public void switch_(Label defaultLabel, long[] cases, Label... labels) {
+            get().switch_(defaultLabel, cases, labels);
+        }
+
         @Override
         public void switch_(Label defaultLabel, String[] cases, Label... labels) {
             get().switch_(defaultLabel, cases, labels);
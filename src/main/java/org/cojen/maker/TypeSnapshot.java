@@ -0,0 +1,465 @@
+/*
+ *  Copyright 2026 Cojen.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.cojen.maker;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import java.lang.reflect.Executable;
+
+import java.net.URI;
+import java.net.URL;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import java.nio.charset.StandardCharsets;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import java.nio.file.attribute.BasicFileAttributes;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import java.util.zip.CRC32;
+
+/**
+ * Stores the member metadata of existing classes into a file, which can be loaded later to
+ * speed up type resolution. When a snapshot is loaded, the fields, methods and constructors
+ * of the classes it describes don't need to be examined using reflection. A snapshot entry
+ * is only used when the class file it was made from is unchanged, as determined by its
+ * location and by the size and modification time of the file which contains it.
+ *
+ * <p>Snapshots are intended to be made when building an application, and then loaded when
+ * the application starts, before any classes are made.
+ *
+ * @author Brian S. O'Neill
+ */
+public final class TypeSnapshot {
+    private static final int MAGIC = 0x434d5453, VERSION = 2;
+
+    private static volatile Map<String, Entry> cEntries = Map.of();
+
+    // Maps jar file URLs to stamps, which are shared by all the classes in the jar.
+    private static final Map<String, Long> cJarStamps = new ConcurrentHashMap<>();
+
+    private TypeSnapshot() {
+    }
+
+    /**
+     * Writes a snapshot file which describes the given classes, and all of their superclasses
+     * and interfaces. Classes which don't have a class file resource, like hidden classes,
+     * are skipped.
+     *
+     * @param file snapshot file to create or replace
+     * @param classes classes to describe
+     * @return the number of classes which were written to the snapshot
+     */
+    public static int write(Path file, Class<?>... classes) throws IOException {
+        var all = new LinkedHashSet<Class<?>>();
+        for (Class<?> clazz : classes) {
+            gather(all, clazz);
+        }
+
+        var index = new ByteArrayOutputStream();
+        var indexOut = new DataOutputStream(index);
+        var data = new ByteArrayOutputStream();
+        var dataOut = new DataOutputStream(data);
+
+        int count = 0;
+
+        for (Class<?> clazz : all) {
+            URL location = location(clazz);
+            if (location == null) {
+                continue;
+            }
+
+            writeString(indexOut, clazz.getName());
+            writeString(indexOut, location.toString());
+            indexOut.writeLong(stamp(location));
+            indexOut.writeInt(dataOut.size());
+
+            var fields = clazz.getDeclaredFields();
+            dataOut.writeInt(fields.length);
+            for (var field : fields) {
+                dataOut.writeInt(field.getModifiers());
+                writeString(dataOut, field.getName());
+                writeString(dataOut, field.getType().descriptorString());
+            }
+
+            var methods = clazz.getDeclaredMethods();
+            var ctors = clazz.getDeclaredConstructors();
+            dataOut.writeInt(methods.length + ctors.length);
+            for (var method : methods) {
+                writeMethod(dataOut, method.getName(), method, method.getReturnType());
+            }
+            for (var ctor : ctors) {
+                writeMethod(dataOut, "<init>", ctor, void.class);
+            }
+
+            count++;
+        }
+
+        try (OutputStream out = Files.newOutputStream(file)) {
+            var dout = new DataOutputStream(out);
+            dout.writeInt(MAGIC);
+            dout.writeInt(VERSION);
+            dout.writeInt(count);
+            index.writeTo(dout);
+            data.writeTo(dout);
+            dout.flush();
+        }
+
+        return count;
+    }
+
+    /**
+     * Loads a snapshot file by mapping it into memory, making it available for all
+     * subsequent type resolution. The snapshot entries are merged with those from any
+     * snapshots which were loaded earlier.
+     *
+     * @param file snapshot file which was created by the {@link #write write} method
+     * @return the number of classes described by the snapshot
+     * @throws IOException if the file cannot be read or if it isn't a valid snapshot
+     */
+    public static int load(Path file) throws IOException {
+        ByteBuffer bb;
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            bb = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        int count;
+        var entries = new HashMap<String, Entry>();
+
+        try {
+            if (bb.getInt() != MAGIC || bb.getInt() != VERSION) {
+                throw new IOException("Not a type snapshot: " + file);
+            }
+
+            count = bb.getInt();
+
+            for (int i=0; i<count; i++) {
+                String name = readString(bb);
+                String location = readString(bb);
+                long stamp = bb.getLong();
+                entries.put(name, new Entry(bb, location, stamp, bb.getInt()));
+            }
+
+            int dataStart = bb.position();
+
+            for (Entry e : entries.values()) {
+                e.mOffset += dataStart;
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Malformed type snapshot: " + file, e);
+        }
+
+        synchronized (TypeSnapshot.class) {
+            var merged = new HashMap<String, Entry>(cEntries);
+            merged.putAll(entries);
+            cEntries = merged;
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns a valid snapshot entry for the given class, or else null if none.
+     */
+    static Entry find(Class<?> clazz) {
+        Map<String, Entry> entries = cEntries;
+        if (entries.isEmpty() || clazz.isHidden()) {
+            return null;
+        }
+        Entry e = entries.get(clazz.getName());
+        return e == null || !e.isValidFor(clazz) ? null : e;
+    }
+
+    private static void gather(Set<Class<?>> all, Class<?> clazz) {
+        while (clazz.isArray()) {
+            clazz = clazz.getComponentType();
+        }
+        if (clazz.isPrimitive() || !all.add(clazz)) {
+            return;
+        }
+        Class<?> superclass = clazz.getSuperclass();
+        if (superclass != null) {
+            gather(all, superclass);
+        }
+        for (Class<?> iface : clazz.getInterfaces()) {
+            gather(all, iface);
+        }
+    }
+
+    /**
+     * Returns the location of the class file, without reading it.
+     *
+     * @return null if not found
+     */
+    private static URL location(Class<?> clazz) {
+        if (clazz.isHidden()) {
+            return null;
+        }
+        return clazz.getResource('/' + clazz.getName().replace('.', '/') + ".class");
+    }
+
+    /**
+     * Returns a stamp which changes when the class file at the given location changes. Only
+     * the file attributes are examined, except for unusual locations, which require that the
+     * class file be read and hashed. Classes in the runtime image are stamped by the runtime
+     * version.
+     */
+    private static long stamp(URL location) throws IOException {
+        Long stamp;
+        switch (location.getProtocol()) {
+        case "file":
+            stamp = fileStamp(location.toString());
+            if (stamp != null) {
+                return stamp;
+            }
+            break;
+        case "jar":
+            String path = location.getPath();
+            int ix = path.indexOf("!/");
+            if (ix > 0) {
+                String jar = path.substring(0, ix);
+                stamp = cJarStamps.get(jar);
+                if (stamp == null && (stamp = fileStamp(jar)) != null) {
+                    cJarStamps.putIfAbsent(jar, stamp);
+                }
+                if (stamp != null) {
+                    return stamp;
+                }
+            }
+            break;
+        case "jrt":
+            return Runtime.version().toString().hashCode();
+        }
+
+        try (InputStream in = location.openStream()) {
+            var crc = new CRC32();
+            crc.update(in.readAllBytes());
+            return crc.getValue();
+        }
+    }
+
+    /**
+     * @param url file URL
+     * @return null if not a file
+     */
+    private static Long fileStamp(String url) throws IOException {
+        Path path;
+        try {
+            path = Path.of(new URI(url));
+        } catch (Exception e) {
+            return null;
+        }
+        var attrs = Files.readAttributes(path, BasicFileAttributes.class);
+        return attrs.lastModifiedTime().toMillis() * 31 + attrs.size();
+    }
+
+    private static void writeMethod(DataOutputStream out, String name,
+                                    Executable method, Class<?> returnType)
+        throws IOException
+    {
+        out.writeInt(method.getModifiers());
+        writeString(out, name);
+        var b = new StringBuilder().append('(');
+        for (Class<?> type : method.getParameterTypes()) {
+            b.append(type.descriptorString());
+        }
+        writeString(out, b.append(')').append(returnType.descriptorString()).toString());
+    }
+
+    private static void writeString(DataOutputStream out, String str) throws IOException {
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer bb) {
+        int length = bb.getChar();
+        var bytes = new byte[length];
+        bb.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Describes the members of one class. The members are decoded from the mapped snapshot
+     * file when first requested.
+     */
+    static final class Entry {
+        private final ByteBuffer mBuffer;
+        private final String mLocation;
+        private final long mStamp;
+        private int mOffset;
+
+        private volatile Member[] mFields, mMethods;
+
+        private Entry(ByteBuffer buffer, String location, long stamp, int offset) {
+            mBuffer = buffer;
+            mLocation = location;
+            mStamp = stamp;
+            mOffset = offset;
+        }
+
+        /**
+         * Checks the class file of the given class, which might not be the same as the one
+         * which the snapshot was made from. Classes of the same name can be loaded by
+         * different class loaders.
+         */
+        private boolean isValidFor(Class<?> clazz) {
+            URL location = location(clazz);
+            if (location == null || !mLocation.equals(location.toString())) {
+                return false;
+            }
+            try {
+                return stamp(location) == mStamp;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        Member[] fields() {
+            Member[] fields = mFields;
+            if (fields == null) {
+                decode();
+                fields = mFields;
+            }
+            return fields;
+        }
+
+        /**
+         * Returns all the methods and constructors.
+         */
+        Member[] methods() {
+            Member[] methods = mMethods;
+            if (methods == null) {
+                decode();
+                methods = mMethods;
+            }
+            return methods;
+        }
+
+        private synchronized void decode() {
+            if (mMethods != null) {
+                return;
+            }
+            ByteBuffer bb = mBuffer.duplicate().position(mOffset);
+            Member[] fields = decodeMembers(bb);
+            mMethods = decodeMembers(bb);
+            mFields = fields;
+        }
+
+        private static Member[] decodeMembers(ByteBuffer bb) {
+            var members = new Member[bb.getInt()];
+            for (int i=0; i<members.length; i++) {
+                int flags = bb.getInt();
+                members[i] = new Member(flags, readString(bb), readString(bb));
+            }
+            return members;
+        }
+    }
+
+    static final class Member {
+        final int mFlags;
+        final String mName;
+        final String mDesc;
+
+        private Member(int flags, String name, String desc) {
+            mFlags = flags;
+            mName = name;
+            mDesc = desc;
+        }
+
+        /**
+         * Returns the field type, or the method return type followed by the parameter types.
+         */
+        BaseType[] types(ClassLoader loader) {
+            var types = new ArrayList<BaseType>();
+            String desc = mDesc;
+            int pos = desc.charAt(0) == '(' ? 1 : 0;
+            BaseType returnType = null;
+
+            while (pos < desc.length()) {
+                char c = desc.charAt(pos);
+                if (c == ')') {
+                    pos++;
+                    continue;
+                }
+                int end = pos;
+                while (desc.charAt(end) == '[') {
+                    end++;
+                }
+                if (desc.charAt(end) == 'L') {
+                    end = desc.indexOf(';', end);
+                }
+                end++;
+                BaseType type = BaseType.from(loader, toName(desc, pos, end));
+                if (end >= desc.length() && desc.charAt(0) == '(') {
+                    returnType = type;
+                } else {
+                    types.add(type);
+                }
+                pos = end;
+            }
+
+            if (returnType != null) {
+                types.add(0, returnType);
+            }
+
+            return types.toArray(new BaseType[types.size()]);
+        }
+
+        /**
+         * Converts a descriptor into a Java class name, which ensures that the resolved types
+         * of boxed primitives can be unboxed.
+         */
+        private static String toName(String desc, int start, int end) {
+            int dims = 0;
+            while (desc.charAt(start) == '[') {
+                start++;
+                dims++;
+            }
+            String name;
+            if (desc.charAt(start) == 'L') {
+                name = desc.substring(start + 1, end - 1).replace('/', '.');
+            } else {
+                name = desc.substring(start, end);
+            }
+            if (dims != 0) {
+                var b = new StringBuilder(name);
+                for (int i=0; i<dims; i++) {
+                    b.append("[]");
+                }
+                name = b.toString();
+            }
+            return name;
+        }
+    }
+}
@@ -497,6 +497,19 @@ public interface Variable {
      */
     void switch_(Label defaultLabel, int[] cases, Label... labels);
 
+    /**
+     * Generates a switch statement against this {@code long} or non-null {@code Long}
+     * variable. None of the labels need to be positioned yet. If the cases span a range
+     * which fits in an {@code int}, a single {@code int} switch is generated. Otherwise, a
+     * switch on the high 32 bits selects a switch on the low 32 bits.
+     *
+     * @param defaultLabel required
+     * @throws IllegalArgumentException if the number of cases and labels don't match, or if
+     * any cases are duplicated
+     * @throws IllegalStateException if this variable cannot be automatically cast to a long
+     */
+    void switch_(Label defaultLabel, long[] cases, Label... labels);
+
     /**
      * Generates a switch statement against this non-null {@code String} variable. None of the
      * labels need to be positioned yet.
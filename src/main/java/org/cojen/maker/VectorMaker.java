@@ -0,0 +1,240 @@
+/*
+ *  Copyright 2026 Cojen.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.cojen.maker;
+
+import java.lang.constant.ClassDesc;
+
+import java.lang.invoke.ConstantBootstraps;
+
+import java.util.Objects;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Generates code which uses the {@code jdk.incubator.vector} API, for a specific element
+ * type. The vector species is loaded as a dynamic constant, and loops are generated with an
+ * unmasked main loop and a masked tail step.
+ *
+ * <p>The vector module isn't required by this module, and so it must be added when the
+ * application runs, by specifying {@code --add-modules jdk.incubator.vector}. The types of
+ * the API are resolved by name when the code is generated. This module is granted access to
+ * the vector module automatically, but when code is generated into a class of another named
+ * module, that module must read the vector module too.
+ *
+ * <pre>{@code
+ * // int sum = 0; for (int v : array) sum += v;
+ * var vm = VectorMaker.of(mm, int.class);
+ * var sum = mm.var(int.class).set(0);
+ * vm.loop(0, array.alength(), (i, mask) -> {
+ *     sum.inc(vm.reduce(vm.load(array, i, mask), "ADD", mask));
+ * });
+ * }</pre>
+ *
+ * @author Brian S. O'Neill
+ */
+public final class VectorMaker {
+    private static final String PACKAGE = "jdk.incubator.vector.";
+
+    private final MethodMaker mMaker;
+    private final String mVectorName;
+    private final String mSpeciesName;
+
+    /**
+     * Returns a vector maker which uses the preferred species of the given element type.
+     *
+     * @param mm the method to generate code into
+     * @param elementType {@code int}, {@code long}, {@code float} or {@code double}
+     * @throws IllegalArgumentException if the element type is unsupported
+     */
+    public static VectorMaker of(MethodMaker mm, Class<?> elementType) {
+        return of(mm, elementType, "SPECIES_PREFERRED");
+    }
+
+    /**
+     * Returns a vector maker which uses a specific species of the given element type.
+     *
+     * @param mm the method to generate code into
+     * @param elementType {@code int}, {@code long}, {@code float} or {@code double}
+     * @param speciesName name of a species constant in the vector class, like {@code
+     * "SPECIES_256"}
+     * @throws IllegalArgumentException if the element type is unsupported
+     */
+    public static VectorMaker of(MethodMaker mm, Class<?> elementType, String speciesName) {
+        Objects.requireNonNull(mm);
+        Objects.requireNonNull(speciesName);
+
+        String vectorName;
+        if (elementType == int.class) {
+            vectorName = "IntVector";
+        } else if (elementType == long.class) {
+            vectorName = "LongVector";
+        } else if (elementType == float.class) {
+            vectorName = "FloatVector";
+        } else if (elementType == double.class) {
+            vectorName = "DoubleVector";
+        } else {
+            throw new IllegalArgumentException("Unsupported element type: " + elementType);
+        }
+
+        // The generated code can be in this module, which doesn't require the vector module.
+        ModuleLayer.boot().findModule("jdk.incubator.vector")
+            .ifPresent(VectorMaker.class.getModule()::addReads);
+
+        return new VectorMaker(mm, PACKAGE + vectorName, speciesName);
+    }
+
+    private VectorMaker(MethodMaker mm, String vectorName, String speciesName) {
+        mMaker = mm;
+        mVectorName = vectorName;
+        mSpeciesName = speciesName;
+    }
+
+    /**
+     * Returns the maker which code is generated into.
+     */
+    public MethodMaker maker() {
+        return mMaker;
+    }
+
+    /**
+     * Returns a new unmodifiable variable which refers to the species constant, which is a
+     * {@code VectorSpecies}. The constant is loaded where this method is called, and so the
+     * variable must only be used where it's definitely assigned.
+     */
+    public Variable species() {
+        return mMaker.var(ConstantBootstraps.class)
+            .condy("getStaticFinal", ClassDesc.of(mVectorName))
+            .invoke(PACKAGE + "VectorSpecies", mSpeciesName);
+    }
+
+    /**
+     * Returns a new {@code int} variable which is set to the number of lanes of the species.
+     */
+    public Variable length() {
+        return species().invoke("length");
+    }
+
+    /**
+     * Returns a new vector variable whose lanes are all zero.
+     */
+    public Variable zero() {
+        return mMaker.var(mVectorName).invoke("zero", species());
+    }
+
+    /**
+     * Returns a new vector variable whose lanes are all set to the given value.
+     *
+     * @param value {@link Variable} or constant
+     */
+    public Variable broadcast(Object value) {
+        return mMaker.var(mVectorName).invoke("broadcast", species(), value);
+    }
+
+    /**
+     * Returns a new vector variable which is loaded from a primitive array.
+     *
+     * @param array primitive array variable
+     * @param index {@link Variable} or constant
+     * @param mask optional mask variable; pass null to load all lanes
+     */
+    public Variable load(Object array, Object index, Variable mask) {
+        Variable vectorVar = mMaker.var(mVectorName);
+        if (mask == null) {
+            return vectorVar.invoke("fromArray", species(), array, index);
+        } else {
+            return vectorVar.invoke("fromArray", species(), array, index, mask);
+        }
+    }
+
+    /**
+     * Generates code which stores a vector into a primitive array.
+     *
+     * @param vector vector variable
+     * @param array primitive array variable
+     * @param index {@link Variable} or constant
+     * @param mask optional mask variable; pass null to store all lanes
+     */
+    public void store(Variable vector, Object array, Object index, Variable mask) {
+        if (mask == null) {
+            vector.invoke("intoArray", array, index);
+        } else {
+            vector.invoke("intoArray", array, index, mask);
+        }
+    }
+
+    /**
+     * Returns a variable which refers to a constant from the {@code VectorOperators} class,
+     * which can be passed to the lanewise operations of a vector.
+     *
+     * @param name operator name, like {@code "ADD"} or {@code "MAX"}
+     */
+    public Variable operator(String name) {
+        return mMaker.var(PACKAGE + "VectorOperators").field(name);
+    }
+
+    /**
+     * Returns a new variable which is set to the result of reducing all the lanes of a
+     * vector.
+     *
+     * @param vector vector variable
+     * @param op operator name, like {@code "ADD"} or {@code "MAX"}
+     * @param mask optional mask variable; pass null to reduce all lanes
+     */
+    public Variable reduce(Variable vector, String op, Variable mask) {
+        if (mask == null) {
+            return vector.invoke("reduceLanes", operator(op));
+        } else {
+            return vector.invoke("reduceLanes", operator(op), mask);
+        }
+    }
+
+    /**
+     * Generates a loop over a range of indexes, one vector at a time. The main loop steps
+     * over whole vectors and passes a null mask to the body. If any indexes remain, the body
+     * is then called once more with a mask which selects the remaining lanes. The body
+     * generator is called twice, and so it should be written to accept either case, by
+     * passing the mask to the methods which load, store and reduce vectors.
+     *
+     * @param start inclusive start of the range; {@link Variable} or constant
+     * @param end exclusive end of the range; {@link Variable} or constant, which is only
+     * evaluated once
+     * @param body receives the index variable, which must not be modified, and the mask
+     * variable, which is null for the main loop
+     */
+    public void loop(Object start, Object end, BiConsumer<Variable, Variable> body) {
+        MethodMaker mm = mMaker;
+        Variable species = species();
+
+        Variable ix = mm.var(int.class).set(start);
+        Variable endVar = mm.var(int.class).set(end);
+        Variable step = length();
+        Variable bound = ix.add(species.invoke("loopBound", endVar.sub(ix)));
+
+        Label tail = mm.label();
+        ix.ifGe(bound, tail);
+        Label loop = mm.label().here();
+        body.accept(ix, null);
+        ix.inc(step);
+        ix.ifLt(bound, loop);
+        tail.here();
+
+        Label done = mm.label();
+        ix.ifGe(endVar, done);
+        body.accept(ix, species.invoke("indexInRange", ix, endVar));
+        done.here();
+    }
+}
@@ -123,6 +123,21 @@ final class WeakCache<K, V> extends ReferenceQueue<Object> {
         return null;
     }
 
+    /**
+     * Puts the value only if no value is currently associated with the key. Unlike an
+     * externally synchronized get and put sequence, the lock is only held briefly, and the
+     * value must be created in advance.
+     *
+     * @return existing value, or null if the given value was put
+     */
+    public synchronized V putIfAbsent(K key, V value) {
+        V existing = get(key);
+        if (existing == null) {
+            put(key, value);
+        }
+        return existing;
+    }
+
     /**
      * Caller must be synchronized.
      *
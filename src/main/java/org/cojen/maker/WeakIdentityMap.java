@@ -0,0 +1,200 @@
+/*
+ *  Copyright 2026 Cojen.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.cojen.maker;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+import java.lang.ref.WeakReference;
+import java.lang.ref.ReferenceQueue;
+
+/**
+ * Simple concurrent map of weakly referenced keys, which are compared by identity. Lookups
+ * and removals don't synchronize, and so many threads can access the map at the same time.
+ *
+ * @author Brian S O'Neill
+ * @see WeakCache
+ */
+final class WeakIdentityMap<K, V> extends ReferenceQueue<Object> {
+    private static final VarHandle cValueHandle;
+
+    static {
+        try {
+            cValueHandle = MethodHandles.lookup().findVarHandle
+                (Entry.class, "mValue", Object.class);
+        } catch (Throwable e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Entry<K, V>[] mEntries;
+    private int mSize;
+
+    @SuppressWarnings({"unchecked"})
+    public WeakIdentityMap() {
+        // Initial capacity must be a power of 2.
+        mEntries = new Entry[2];
+    }
+
+    /**
+     * Can be called without explicit synchronization. If the key isn't found, the search is
+     * performed again with synchronization, because entries can appear to go missing when
+     * the map is being concurrently rehashed.
+     *
+     * @return null if not found
+     */
+    public V get(K key) {
+        Object ref = poll();
+        if (ref != null) {
+            synchronized (this) {
+                cleanup(ref);
+            }
+        }
+
+        Entry<K, V> e = find(key);
+
+        if (e == null) {
+            synchronized (this) {
+                e = find(key);
+            }
+            if (e == null) {
+                return null;
+            }
+        }
+
+        return e.mValue;
+    }
+
+    /**
+     * @return replaced value, or null if none
+     */
+    @SuppressWarnings({"unchecked"})
+    public synchronized V put(K key, V value) {
+        Object ref = poll();
+        if (ref != null) {
+            cleanup(ref);
+        }
+
+        var entries = mEntries;
+        int hash = System.identityHashCode(key);
+        int index = hash & (entries.length - 1);
+
+        for (var e = entries[index]; e != null; e = e.mNext) {
+            if (e.get() == key) {
+                return (V) cValueHandle.getAndSet(e, value);
+            }
+        }
+
+        if (mSize >= entries.length) {
+            // Rehash, dropping entries whose key was collected or whose value was removed.
+            var newEntries = new Entry[entries.length << 1];
+            int size = 0;
+            for (int i=entries.length; --i>=0 ;) {
+                for (var existing = entries[i]; existing != null; ) {
+                    var e = existing;
+                    existing = existing.mNext;
+                    if (e.get() != null && e.mValue != null) {
+                        size++;
+                        index = e.mHash & (newEntries.length - 1);
+                        e.mNext = newEntries[index];
+                        newEntries[index] = e;
+                    }
+                }
+            }
+            mEntries = entries = newEntries;
+            mSize = size;
+            index = hash & (entries.length - 1);
+        }
+
+        var newEntry = new Entry<K, V>(key, value, hash, this);
+        newEntry.mNext = entries[index];
+        VarHandle.storeStoreFence(); // ensure that entry value is safely visible
+        entries[index] = newEntry;
+        mSize++;
+
+        return null;
+    }
+
+    /**
+     * Atomically removes the value for the given key, but only if it's currently mapped to
+     * the given value instance. The stale entry is fully removed later, when the map is
+     * rehashed.
+     *
+     * @return false if not removed
+     */
+    public boolean remove(K key, V value) {
+        Entry<K, V> e = find(key);
+        if (e == null) {
+            synchronized (this) {
+                e = find(key);
+            }
+        }
+        return e != null && cValueHandle.compareAndSet(e, value, null);
+    }
+
+    private Entry<K, V> find(K key) {
+        var entries = mEntries;
+        int index = System.identityHashCode(key) & (entries.length - 1);
+        for (var e = entries[index]; e != null; e = e.mNext) {
+            if (e.get() == key) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Caller must be synchronized.
+     *
+     * @param ref not null
+     */
+    @SuppressWarnings({"unchecked"})
+    private void cleanup(Object ref) {
+        var entries = mEntries;
+        do {
+            var cleared = (Entry<K, V>) ref;
+            int ix = cleared.mHash & (entries.length - 1);
+            for (Entry<K, V> e = entries[ix], prev = null; e != null; e = e.mNext) {
+                if (e == cleared) {
+                    if (prev == null) {
+                        entries[ix] = e.mNext;
+                    } else {
+                        prev.mNext = e.mNext;
+                    }
+                    mSize--;
+                    break;
+                } else {
+                    prev = e;
+                }
+            }
+        } while ((ref = poll()) != null);
+    }
+
+    private static final class Entry<K, V> extends WeakReference<K> {
+        final int mHash;
+
+        volatile V mValue;
+
+        Entry<K, V> mNext;
+
+        Entry(K key, V value, int hash, WeakIdentityMap<K, V> map) {
+            super(key, map);
+            mValue = value;
+            mHash = hash;
+        }
+    }
+}
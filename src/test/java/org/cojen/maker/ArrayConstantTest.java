@@ -0,0 +1,151 @@
+/*
+ *  Copyright 2026 Cojen.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.cojen.maker;
+
+import java.lang.invoke.MethodHandles;
+
+import java.lang.reflect.Method;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ *
+ *
+ * @author Brian S. O'Neill
+ */
+public class ArrayConstantTest {
+    public static void main(String[] args) throws Exception {
+        org.junit.runner.JUnitCore.main(ArrayConstantTest.class.getName());
+    }
+
+    @Test
+    public void allTypes() throws Exception {
+        var rnd = new Random(8675309);
+
+        for (int len : new int[] {0, 1, 2, 3, 10, 1001}) {
+            var bytes = new byte[len];
+            rnd.nextBytes(bytes);
+
+            var booleans = new boolean[len];
+            var chars = new char[len];
+            var shorts = new short[len];
+            var ints = new int[len];
+            var floats = new float[len];
+            var longs = new long[len];
+            var doubles = new double[len];
+
+            for (int i=0; i<len; i++) {
+                booleans[i] = rnd.nextBoolean();
+                chars[i] = (char) rnd.nextInt();
+                shorts[i] = (short) rnd.nextInt();
+                ints[i] = rnd.nextInt();
+                floats[i] = rnd.nextFloat() * rnd.nextInt();
+                longs[i] = rnd.nextLong();
+                doubles[i] = rnd.nextDouble() * rnd.nextLong();
+            }
+
+            if (len > 3) {
+                chars[0] = 0;
+                chars[1] = 0xffff;
+                floats[2] = Float.NaN;
+                doubles[3] = Double.NEGATIVE_INFINITY;
+            }
+
+            Object[] arrays = {
+                bytes, booleans, chars, shorts, ints, floats, longs, doubles
+            };
+
+            ClassMaker cm = ClassMaker.begin().public_();
+            MethodMaker mm = cm.addMethod(Object[].class, "test").public_().static_();
+            var result = mm.new_(Object[].class, arrays.length);
+            for (int i=0; i<arrays.length; i++) {
+                result.aset(i, mm.arrayConstant(arrays[i]));
+            }
+            mm.return_(result);
+
+            Method test = cm.finish().getMethod("test");
+            var actual = (Object[]) test.invoke(null);
+
+            assertTrue(Arrays.deepEquals(arrays, actual));
+
+            // Same instance each time.
+            var again = (Object[]) test.invoke(null);
+            for (int i=0; i<arrays.length; i++) {
+                assertSame(actual[i], again[i]);
+            }
+        }
+    }
+
+    @Test
+    public void large() throws Exception {
+        var rnd = new Random(5551212);
+        var ints = new int[300_000];
+        for (int i=0; i<ints.length; i++) {
+            ints[i] = rnd.nextInt();
+        }
+
+        ClassMaker cm = ClassMaker.begin().public_();
+        MethodMaker mm = cm.addMethod(int.class, "get", int.class).public_().static_();
+        mm.return_(mm.arrayConstant(ints).aget(mm.param(0)));
+        Method get = cm.finish().getMethod("get", int.class);
+
+        for (int i=0; i<ints.length; i += 997) {
+            assertEquals(ints[i], get.invoke(null, i));
+        }
+        assertEquals(ints[ints.length - 1], get.invoke(null, ints.length - 1));
+    }
+
+    @Test
+    public void external() throws Exception {
+        var longs = new long[] {1, Long.MIN_VALUE, Long.MAX_VALUE, -1};
+
+        ClassMaker cm = ClassMaker.beginExternal("org.cojen.maker.ArrayConstantFake").public_();
+        MethodMaker mm = cm.addMethod(long[].class, "test").public_().static_();
+        mm.return_(mm.arrayConstant(longs));
+        byte[] bytes = cm.finishBytes();
+
+        Class<?> clazz = MethodHandles.lookup().defineClass(bytes);
+        assertArrayEquals(longs, (long[]) clazz.getMethod("test").invoke(null));
+    }
+
+    @Test
+    public void broken() throws Exception {
+        MethodMaker mm = ClassMaker.begin().addMethod(null, "test");
+
+        try {
+            mm.arrayConstant(null);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+
+        try {
+            mm.arrayConstant(new String[0]);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+
+        try {
+            mm.arrayConstant("hello");
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ *  Copyright 2026 Cojen.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.cojen.maker;
+
+import java.lang.reflect.Method;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ *
+ *
+ * @author Brian S. O'Neill
+ */
+public class BranchProfileTest {
+    public static void main(String[] args) throws Exception {
+        org.junit.runner.JUnitCore.main(BranchProfileTest.class.getName());
+    }
+
+    private static Method ifTrue(BranchProfile profile) throws Exception {
+        ClassMaker cm = ClassMaker.begin().public_();
+        MethodMaker mm = cm.addMethod(String.class, "test", int.class).public_().static_();
+        var result = mm.var(String.class).set("small");
+        profile.ifTrue(mm, "big", mm.param(0).gt(100),
+                       () -> result.set("big"), () -> result.set(mm.concat(result, '!')));
+        profile.ifTrue(mm, "neg", mm.param(0).lt(0), () -> mm.return_("neg"), null);
+        mm.return_(result);
+        return cm.finish().getMethod("test", int.class);
+    }
+
+    @Test
+    public void ifTrue() throws Exception {
+        BranchProfile profile = BranchProfile.begin();
+        assertTrue(profile.isInstrumented());
+
+        Method test = ifTrue(profile);
+        assertEquals("big", test.invoke(null, 1000));
+        for (int i=0; i<10; i++) {
+            assertEquals("small!", test.invoke(null, i));
+        }
+        assertEquals("neg", test.invoke(null, -1));
+
+        assertArrayEquals(new long[] {1, 11}, profile.counts("big"));
+        assertArrayEquals(new long[] {1, 11}, profile.counts("neg"));
+        assertEquals(0, profile.counts("unknown").length);
+
+        BranchProfile frozen = profile.freeze();
+        assertFalse(frozen.isInstrumented());
+
+        test = ifTrue(frozen);
+        assertEquals("big", test.invoke(null, 1000));
+        assertEquals("small!", test.invoke(null, 1));
+        assertEquals("neg", test.invoke(null, -1));
+
+        assertArrayEquals(new long[] {1, 11}, frozen.counts("big"));
+
+        profile.reset();
+        assertArrayEquals(new long[] {0, 0}, profile.counts("big"));
+
+        try {
+            frozen.reset();
+            fail();
+        } catch (IllegalStateException e) {
+        }
+    }
+
+    private static Method ifChain(BranchProfile profile) throws Exception {
+        ClassMaker cm = ClassMaker.begin().public_();
+        MethodMaker mm = cm.addMethod(int.class, "test", int.class).public_().static_();
+        var x = mm.param(0);
+        profile.ifChain(mm, "chain", 4, arm -> x.eq(arm * 10),
+                        arm -> mm.return_(arm), () -> mm.return_(-1));
+        return cm.finish().getMethod("test", int.class);
+    }
+
+    @Test
+    public void ifChain() throws Exception {
+        BranchProfile profile = BranchProfile.begin();
+
+        Method test = ifChain(profile);
+        for (int i=0; i<5; i++) {
+            assertEquals(3, test.invoke(null, 30));
+        }
+        assertEquals(2, test.invoke(null, 20));
+        assertEquals(2, test.invoke(null, 20));
+        assertEquals(-1, test.invoke(null, 5));
+
+        assertArrayEquals(new long[] {0, 0, 2, 5, 1}, profile.counts("chain"));
+
+        test = ifChain(profile.freeze());
+        for (int i=0; i<4; i++) {
+            assertEquals(i, test.invoke(null, i * 10));
+        }
+        assertEquals(-1, test.invoke(null, 5));
+
+        assertArrayEquals(new long[] {0, 0, 2, 5, 1}, profile.counts("chain"));
+    }
+
+    private static Method switch_(BranchProfile profile) throws Exception {
+        ClassMaker cm = ClassMaker.begin().public_();
+        MethodMaker mm = cm.addMethod(String.class, "test", int.class).public_().static_();
+        int[] cases = {1, 2, 3, 100};
+        var labels = new Label[cases.length];
+        for (int i=0; i<labels.length; i++) {
+            labels[i] = mm.label();
+        }
+        Label def = mm.label();
+        profile.switch_(mm, "switch", mm.param(0), def, cases, labels);
+        for (int i=0; i<labels.length; i++) {
+            labels[i].here();
+            mm.return_("case" + cases[i]);
+        }
+        def.here();
+        mm.return_("default");
+        return cm.finish().getMethod("test", int.class);
+    }
+
+    @Test
+    public void switch_() throws Exception {
+        BranchProfile profile = BranchProfile.begin();
+
+        Method test = switch_(profile);
+        for (int i=0; i<10; i++) {
+            assertEquals("case100", test.invoke(null, 100));
+        }
+        assertEquals("case1", test.invoke(null, 1));
+        assertEquals("default", test.invoke(null, 4));
+
+        assertArrayEquals(new long[] {1, 0, 0, 10, 1}, profile.counts("switch"));
+
+        test = switch_(profile.freeze());
+        for (int c : new int[] {1, 2, 3, 100}) {
+            assertEquals("case" + c, test.invoke(null, c));
+        }
+        assertEquals("default", test.invoke(null, 0));
+    }
+
+    @Test
+    public void mismatch() throws Exception {
+        BranchProfile profile = BranchProfile.begin();
+        ifChain(profile);
+
+        MethodMaker mm = ClassMaker.begin().addMethod(null, "test", int.class);
+        try {
+            profile.ifChain(mm, "chain", 2, arm -> mm.param(0).eq(arm), arm -> {}, null);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("Mismatched"));
+        }
+
+        try {
+            profile.freeze().ifTrue(mm, "chain", mm.param(0).eq(0), () -> {}, null);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("Mismatched"));
+        }
+    }
+}
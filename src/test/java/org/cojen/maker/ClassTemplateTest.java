@@ -0,0 +1,197 @@
+/*
+ *  Copyright 2026 Cojen.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.cojen.maker;
+
+import java.lang.invoke.*;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ *
+ *
+ * @author Brian S. O'Neill
+ */
+public class ClassTemplateTest {
+    public static void main(String[] args) throws Exception {
+        org.junit.runner.JUnitCore.main(ClassTemplateTest.class.getName());
+    }
+
+    @Test
+    public void basic() throws Throwable {
+        var template = ClassTemplate.begin
+            (null, MethodHandles.lookup(),
+             int.class, String.class, long.class, float.class, double.class, String.class);
+
+        ClassMaker cm = template.classMaker().public_();
+
+        MethodMaker mm = cm.addMethod(String.class, "describe").public_().static_();
+        mm.return_(mm.concat(template.placeholder(mm, 1), ':',
+                             template.placeholder(mm, 0), ':',
+                             template.placeholder(mm, 2), ':',
+                             template.placeholder(mm, 3), ':',
+                             template.placeholder(mm, 4), ':',
+                             template.placeholder(mm, 5)));
+
+        // Other uses of the same values must not be affected by patching.
+        mm = cm.addMethod(String.class, "fixed").public_().static_();
+        mm.return_(mm.concat("", ':', 0, ':', 0L));
+
+        template.finish();
+
+        String[] names = {"orders", "", "☃ snow", "x".repeat(1000)};
+
+        for (int i=0; i<names.length; i++) {
+            MethodHandles.Lookup lookup = template.variant
+                (i * 100_000, names[i], i * 10_000_000_000L, i + 0.5f, i + 0.25, "v" + i);
+
+            Class<?> clazz = lookup.lookupClass();
+            assertTrue(clazz.isHidden());
+
+            MethodHandle mh = lookup.findStatic
+                (clazz, "describe", MethodType.methodType(String.class));
+            assertEquals(names[i] + ':' + (i * 100_000) + ':' + (i * 10_000_000_000L) + ':'
+                         + (i + 0.5f) + ':' + (i + 0.25) + ":v" + i, mh.invoke());
+
+            mh = lookup.findStatic(clazz, "fixed", MethodType.methodType(String.class));
+            assertEquals(":0:0", mh.invoke());
+        }
+    }
+
+    @Test
+    public void instance() throws Throwable {
+        var template = ClassTemplate.begin(null, (ClassLoader) null, int.class);
+        ClassMaker cm = template.classMaker().public_();
+        cm.addConstructor().public_();
+        cm.implement(java.util.function.IntSupplier.class);
+        MethodMaker mm = cm.addMethod(int.class, "getAsInt").public_();
+        mm.return_(template.placeholder(mm, 0).add(1));
+        template.finish();
+
+        for (int i=0; i<3; i++) {
+            Class<?> clazz = template.variant(i).lookupClass();
+            var supplier = (java.util.function.IntSupplier)
+                clazz.getConstructor().newInstance();
+            assertEquals(i + 1, supplier.getAsInt());
+        }
+    }
+
+    @Test
+    public void broken() throws Throwable {
+        try {
+            ClassTemplate.begin(null, MethodHandles.lookup(), Object.class);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("Unsupported"));
+        }
+
+        var template = ClassTemplate.begin(null, MethodHandles.lookup(), int.class);
+
+        MethodMaker mm = template.classMaker().addMethod(int.class, "x").static_();
+
+        try {
+            template.placeholder(mm, 1);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+        }
+
+        try {
+            template.placeholder(ClassMaker.begin().addMethod(null, "y"), 0);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+
+        try {
+            template.placeholder(mm, 0).set(1);
+            fail();
+        } catch (IllegalStateException e) {
+        }
+
+        mm.return_(template.placeholder(mm, 0));
+
+        try {
+            template.variant(1);
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("isn't finished"));
+        }
+
+        template.finish();
+
+        try {
+            template.classMaker();
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("is finished"));
+        }
+
+        try {
+            template.variant();
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("Wrong number"));
+        }
+
+        try {
+            template.variant("1");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("isn't a int"));
+        }
+
+        try {
+            template.variant(1L);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    @Test
+    public void largeString() throws Throwable {
+        var template = ClassTemplate.begin(null, MethodHandles.lookup(), String.class);
+        ClassMaker cm = template.classMaker().public_();
+        MethodMaker mm = cm.addMethod(String.class, "x").public_().static_();
+        mm.return_(template.placeholder(mm, 0));
+        template.finish();
+
+        String max = "a".repeat(65535);
+        var lookup = template.variant(max);
+        assertEquals(max, lookup.lookupClass().getMethod("x").invoke(null));
+
+        try {
+            // Each character is encoded with three bytes.
+            template.variant("\u0800".repeat(30000));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("too large: 90000"));
+        }
+    }
+
+    @Test
+    public void exactConstants() throws Throwable {
+        var template = ClassTemplate.begin(null, MethodHandles.lookup(), int.class);
+        MethodMaker mm = template.classMaker().addMethod(Object.class, "x").static_();
+        mm.return_(mm.var(Object.class).setExact(new Object()));
+
+        try {
+            template.finish();
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("exact constants"));
+        }
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ *  Copyright 2026 Cojen.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.cojen.maker;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ *
+ *
+ * @author Brian S. O'Neill
+ */
+public class ComparatorMakerTest {
+    public static void main(String[] args) throws Exception {
+        org.junit.runner.JUnitCore.main(ComparatorMakerTest.class.getName());
+    }
+
+    public static class Row {
+        private final int mId;
+        private final String mName;
+        private final double mScore;
+        private final boolean mActive;
+        private final Row mParent;
+
+        public Row(int id, String name, double score, boolean active, Row parent) {
+            mId = id;
+            mName = name;
+            mScore = score;
+            mActive = active;
+            mParent = parent;
+        }
+
+        public int id() {
+            return mId;
+        }
+
+        public String name() {
+            return mName;
+        }
+
+        public double score() {
+            return mScore;
+        }
+
+        public boolean active() {
+            return mActive;
+        }
+
+        public Row parent() {
+            return mParent;
+        }
+
+        public void nothing() {
+        }
+
+        @Override
+        public String toString() {
+            return mId + ":" + mName;
+        }
+    }
+
+    private static List<Row> rows() {
+        var p1 = new Row(100, "p1", 0, true, null);
+        var p2 = new Row(200, "p2", 0, true, null);
+        var rows = new ArrayList<Row>();
+        rows.add(new Row(3, "c", 1.5, true, p2));
+        rows.add(new Row(1, "a", Double.NaN, false, null));
+        rows.add(new Row(2, null, -0.0, true, p1));
+        rows.add(new Row(5, "b", 0.0, false, p1));
+        rows.add(new Row(4, "a", 1.5, true, p2));
+        rows.add(new Row(-7, "B", 2.5, false, null));
+        rows.add(null);
+        return rows;
+    }
+
+    private static void check(Comparator<Row> expect, Comparator<Row> actual) {
+        List<Row> rows = rows();
+        for (Row a : rows) {
+            for (Row b : rows) {
+                assertEquals(a + " vs " + b,
+                             Integer.signum(expect.compare(a, b)),
+                             Integer.signum(actual.compare(a, b)));
+            }
+        }
+    }
+
+    @Test
+    public void primitives() {
+        Comparator<Row> c = ComparatorMaker.begin(Row.class).orderBy("id").finish();
+        check(Comparator.nullsLast(Comparator.comparingInt(Row::id)), c);
+
+        c = ComparatorMaker.begin(Row.class).orderBy("-id").finish();
+        check(Comparator.nullsLast(Comparator.comparingInt(Row::id).reversed()), c);
+
+        c = ComparatorMaker.begin(Row.class).orderBy("score").orderBy("id").finish();
+        check(Comparator.nullsLast(Comparator.comparingDouble(Row::score)
+                                   .thenComparingInt(Row::id)), c);
+
+        c = ComparatorMaker.begin(Row.class).orderBy("active").orderBy("-id").finish();
+        check(Comparator.nullsLast(Comparator.comparing(Row::active)
+                                   .thenComparing(Comparator.comparingInt(Row::id)
+                                                  .reversed())), c);
+    }
+
+    @Test
+    public void objects() {
+        Comparator<Row> c = ComparatorMaker.begin(Row.class).orderBy("name").orderBy("id")
+            .finish();
+        check(Comparator.nullsLast(Comparator.comparing
+                                   (Row::name, Comparator.nullsLast(Comparator.naturalOrder()))
+                                   .thenComparingInt(Row::id)), c);
+
+        c = ComparatorMaker.begin(Row.class).nullLow().orderBy("name").nullLow().orderBy("id")
+            .finish();
+        check(Comparator.nullsFirst(Comparator.comparing
+                                    (Row::name, Comparator.nullsFirst(Comparator.naturalOrder()))
+                                    .thenComparingInt(Row::id)), c);
+
+        c = ComparatorMaker.begin(Row.class)
+            .collate(String.CASE_INSENSITIVE_ORDER).orderBy("name").orderBy("id").finish();
+        check(Comparator.nullsLast(Comparator.comparing
+                                   (Row::name, Comparator.nullsLast
+                                    (String.CASE_INSENSITIVE_ORDER))
+                                   .thenComparingInt(Row::id)), c);
+
+        c = ComparatorMaker.begin(Row.class).orderBy("parent.-id").orderBy("id").finish();
+        check(Comparator.nullsLast(Comparator.comparing
+                                   (Row::parent, Comparator.nullsLast
+                                    (Comparator.comparingInt(Row::id).reversed()))
+                                   .thenComparingInt(Row::id)), c);
+    }
+
+    @Test
+    public void cached() {
+        Comparator<Row> c1 = ComparatorMaker.begin(Row.class).orderBy("name").orderBy("-id")
+            .finish();
+        Comparator<Row> c2 = ComparatorMaker.begin(Row.class).orderBy("name").orderBy("-id")
+            .finish();
+        assertSame(c1, c2);
+
+        Comparator<Row> c3 = ComparatorMaker.begin(Row.class).orderBy("name").orderBy("id")
+            .finish();
+        assertNotSame(c1, c3);
+
+        Comparator<Row> c4 = ComparatorMaker.begin(Row.class).orderBy("name")
+            .using(String.CASE_INSENSITIVE_ORDER).finish();
+        Comparator<Row> c5 = ComparatorMaker.begin(Row.class).orderBy("name")
+            .using(String.CASE_INSENSITIVE_ORDER).finish();
+        // Not cached, because the custom comparator would be retained forever.
+        assertNotSame(c4, c5);
+        assertEquals(0, c4.compare(new Row(1, "a", 0, true, null), new Row(2, "A", 0, true, null)));
+        assertEquals(0, c5.compare(new Row(1, "a", 0, true, null), new Row(2, "A", 0, true, null)));
+
+        Comparator<Row> c6 = ComparatorMaker.begin(Row.class)
+            .collate(String.CASE_INSENSITIVE_ORDER).orderBy("name").finish();
+        Comparator<Row> c7 = ComparatorMaker.begin(Row.class)
+            .collate(String.CASE_INSENSITIVE_ORDER).orderBy("name").finish();
+        assertNotSame(c6, c7);
+
+        Comparator<Row> c8 = ComparatorMaker.begin(Row.class).orderBy("+name").finish();
+        assertNotSame(c1, c8);
+        assertTrue(c8.compare(new Row(1, "a", 0, true, null), new Row(1, "b", 0, true, null)) < 0);
+
+        var maker = ComparatorMaker.begin(Row.class).orderBy("id");
+        assertSame(maker.finishEquivalence(), maker.finishEquivalence());
+    }
+
+    @Test
+    public void equivalence() {
+        var maker = ComparatorMaker.begin(Row.class)
+            .orderBy("name").orderBy("score").orderBy("active").orderBy("parent.id");
+        Comparator<Row> c = maker.finish();
+        ComparatorMaker.Equivalence<Row> eq = maker.finishEquivalence();
+
+        List<Row> rows = rows();
+        rows.add(new Row(9, "c", 1.5, true, new Row(200, "p2x", 1, false, null)));
+        rows.add(new Row(10, "a", Double.NaN, false, null));
+        rows.add(new Row(11, "a", 0.0, false, null));
+
+        for (Row a : rows) {
+            for (Row b : rows) {
+                boolean equal = c.compare(a, b) == 0;
+                assertEquals(a + " vs " + b, equal, eq.equal(a, b));
+                if (equal) {
+                    assertEquals(eq.hash(a), eq.hash(b));
+                }
+            }
+        }
+
+        assertEquals(0, eq.hash(null));
+
+        // Collated clauses don't contribute to the hash code.
+        eq = ComparatorMaker.begin(Row.class)
+            .collate(String.CASE_INSENSITIVE_ORDER).orderBy("name").finishEquivalence();
+        var a = new Row(1, "b", 0, false, null);
+        var b = new Row(2, "B", 0, false, null);
+        assertTrue(eq.equal(a, b));
+        assertEquals(eq.hash(a), eq.hash(b));
+        assertFalse(eq.equal(a, new Row(1, "c", 0, false, null)));
+    }
+
+    @Test
+    public void broken() {
+        try {
+            ComparatorMaker.begin(Row.class).orderBy("unknown");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("not found"));
+        }
+
+        try {
+            ComparatorMaker.begin(Row.class).orderBy("nothing");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("void"));
+        }
+    }
+}
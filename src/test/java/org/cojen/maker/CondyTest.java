@@ -290,6 +290,59 @@ public class CondyTest {
         assertSame(const0, clazz.getField("test").get(null));
     }
 
+    @Test
+    public void concurrentInit() throws Exception {
+        concurrentInit(false);
+        concurrentInit(true);
+    }
+
+    private void concurrentInit(boolean explicitLookup) throws Exception {
+        // Initialize many classes with exact constants from multiple threads at once.
+
+        var classes = new Class[1000];
+        var constants = new Object[classes.length][3];
+
+        for (int i=0; i<classes.length; i++) {
+            ClassMaker cm = explicitLookup ? ClassMaker.begin(null, MethodHandles.lookup())
+                : ClassMaker.begin(null);
+            cm.public_();
+            MethodMaker mm = cm.addClinit();
+            for (int j=0; j<constants[i].length; j++) {
+                var value = new Object[] {i, j};
+                constants[i][j] = value;
+                cm.addField(Object[].class, "f" + j).public_().static_().final_();
+                mm.field("f" + j).setExact(value);
+            }
+            classes[i] = cm.finish();
+        }
+
+        var threads = new Thread[4];
+        var errors = new Vector<Throwable>();
+
+        for (int t=0; t<threads.length; t++) {
+            int start = t;
+            threads[t] = new Thread(() -> {
+                try {
+                    for (int i=0; i<classes.length; i++) {
+                        int ix = (i + start * 250) % classes.length;
+                        for (int j=0; j<constants[ix].length; j++) {
+                            assertSame(constants[ix][j], classes[ix].getField("f" + j).get(null));
+                        }
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            });
+            threads[t].start();
+        }
+
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        assertTrue(errors.toString(), errors.isEmpty());
+    }
+
     @Test
     public void mismatch() {
         ClassMaker cm = ClassMaker.begin(null);
@@ -0,0 +1,169 @@
+/*
+ *  Copyright 2026 Cojen.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.cojen.maker;
+
+import java.lang.invoke.MethodHandles;
+
+import java.nio.charset.StandardCharsets;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ *
+ *
+ * @author Brian S. O'Neill
+ */
+public class ConstantLayoutTest {
+    public static void main(String[] args) throws Exception {
+        org.junit.runner.JUnitCore.main(ConstantLayoutTest.class.getName());
+    }
+
+    @Test
+    public void hotConstants() throws Exception {
+        ClassMaker cm = ClassMaker.begin().public_();
+
+        // Fill up the constant pool with names.
+        for (int i=0; i<300; i++) {
+            cm.addField(int.class, "field" + i).public_().static_();
+        }
+
+        MethodMaker mm = cm.addMethod(String.class, "test", int.class).public_().static_();
+        var result = mm.var(String.class).set("cold");
+        for (int i=0; i<10; i++) {
+            Label next = mm.label();
+            mm.param(0).ifNe(i, next);
+            result.set(result.invoke("concat", "hot"));
+            mm.var(Integer.class).set(1_000_000 + i);
+            next.here();
+        }
+        mm.return_(result);
+
+        byte[] bytes = cm.finishBytes();
+        Map<String, Integer> strings = stringIndexes(bytes);
+
+        assertTrue(strings.get("hot") < 256);
+        assertTrue(strings.get("cold") < 256);
+    }
+
+    @Test
+    public void unusedConstants() throws Exception {
+        ClassMaker cm = ClassMaker.begin().public_();
+
+        MethodMaker mm = cm.addMethod(String.class, "test").public_().static_();
+        mm.var(String.class).set("unused");
+        mm.var(Integer.class).set(1_000_000);
+        mm.return_("used");
+
+        byte[] bytes = cm.finishBytes();
+        Map<String, Integer> strings = stringIndexes(bytes);
+
+        assertTrue(strings.containsKey("used"));
+        assertFalse(strings.containsKey("unused"));
+    }
+
+    @Test
+    public void works() throws Exception {
+        ClassMaker cm = ClassMaker.begin().public_();
+
+        for (int i=0; i<300; i++) {
+            cm.addField(int.class, "field" + i).public_().static_().init(1_000_000 + i);
+        }
+
+        MethodMaker mm = cm.addMethod(String.class, "test").public_().static_();
+        Label start = mm.label().here();
+        var b = mm.new_(StringBuilder.class);
+        var expect = new StringBuilder();
+        for (int i=0; i<300; i++) {
+            b.invoke("append", "v" + i).invoke("append", 1.5f + i)
+                .invoke("append", 1_000_000 + i).invoke("append", String.class);
+            expect.append("v" + i).append(1.5f + i).append(1_000_000 + i).append(String.class);
+        }
+        mm.catch_(start, Exception.class, ex -> mm.return_(ex.invoke("getMessage")));
+        mm.return_(b.invoke("toString"));
+
+        Class<?> clazz = cm.finish();
+        assertEquals(expect.toString(), clazz.getMethod("test").invoke(null));
+        assertEquals(1_000_299, clazz.getField("field299").get(null));
+    }
+
+    @Test
+    public void template() throws Throwable {
+        // The second placeholder is loaded more frequently, and so the placeholders are
+        // renumbered out of order.
+        var template = ClassTemplate.begin(null, MethodHandles.lookup(), int.class, int.class);
+        ClassMaker cm = template.classMaker().public_();
+
+        for (int i=0; i<300; i++) {
+            cm.addField(int.class, "field" + i).public_().static_();
+        }
+
+        MethodMaker mm = cm.addMethod(int.class, "sum").public_().static_();
+        var sum = mm.var(int.class).set(template.placeholder(mm, 0));
+        for (int i=0; i<5; i++) {
+            sum.inc(template.placeholder(mm, 1));
+        }
+        mm.return_(sum);
+
+        template.finish();
+
+        MethodHandles.Lookup lookup = template.variant(1_000_000, 2_000_000);
+        assertEquals(11_000_000, lookup.lookupClass().getMethod("sum").invoke(null));
+    }
+
+    /**
+     * Returns the constant pool indexes of all the String constants.
+     */
+    private static Map<String, Integer> stringIndexes(byte[] bytes) {
+        int count = ((bytes[8] & 0xff) << 8) | (bytes[9] & 0xff);
+        var utf8 = new HashMap<Integer, String>();
+        var strings = new HashMap<Integer, Integer>();
+        int pos = 10;
+
+        for (int i=1; i<count; i++) {
+            int tag = bytes[pos++];
+            switch (tag) {
+            case 1 -> {
+                int length = ((bytes[pos] & 0xff) << 8) | (bytes[pos + 1] & 0xff);
+                utf8.put(i, new String(bytes, pos + 2, length, StandardCharsets.UTF_8));
+                pos += 2 + length;
+            }
+            case 8 -> {
+                strings.put(i, ((bytes[pos] & 0xff) << 8) | (bytes[pos + 1] & 0xff));
+                pos += 2;
+            }
+            case 3, 4, 9, 10, 11, 12, 17, 18 -> pos += 4;
+            case 5, 6 -> {
+                pos += 8;
+                i++;
+            }
+            case 7, 16, 19, 20 -> pos += 2;
+            case 15 -> pos += 3;
+            default -> throw new AssertionError(tag);
+            }
+        }
+
+        var result = new HashMap<String, Integer>();
+        for (Map.Entry<Integer, Integer> e : strings.entrySet()) {
+            result.put(utf8.get(e.getValue()), e.getKey());
+        }
+        return result;
+    }
+}
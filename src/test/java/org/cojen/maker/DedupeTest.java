@@ -0,0 +1,144 @@
+/*
+ *  Copyright 2026 Cojen.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.cojen.maker;
+
+import java.lang.invoke.MethodHandles;
+
+import java.util.ArrayList;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * 
+ *
+ * @author Brian S. O'Neill
+ */
+public class DedupeTest {
+    public static void main(String[] args) throws Exception {
+        org.junit.runner.JUnitCore.main(DedupeTest.class.getName());
+    }
+
+    @Test
+    public void basic() throws Exception {
+        Class<?> c1 = make(10, true);
+        Class<?> c2 = make(10, true);
+        assertSame(c1, c2);
+
+        Class<?> c3 = make(11, true);
+        assertNotSame(c1, c3);
+
+        // Not deduped when not enabled.
+        Class<?> c4 = make(10, false);
+        assertNotSame(c1, c4);
+        Class<?> c5 = make(10, false);
+        assertNotSame(c4, c5);
+
+        Object obj = c1.getMethod("make").invoke(null);
+        assertSame(c1, obj.getClass());
+        assertEquals(10, c1.getMethod("value").invoke(obj));
+        assertEquals(c1.getName(), c1.getMethod("name").invoke(null));
+    }
+
+    @Test
+    public void stringConstants() throws Exception {
+        // A string constant which matches the class name is shared with the class constant,
+        // but it must not be normalized.
+        var classes = new ArrayList<Class<?>>();
+        for (int i=0; i<2; i++) {
+            ClassMaker cm = ClassMaker.begin("dedupe.Named").public_().dedupe();
+            MethodMaker mm = cm.addMethod(String.class, "name").public_().static_();
+            mm.return_(cm.name().replace('.', '/'));
+            classes.add(cm.finish());
+        }
+
+        assertNotSame(classes.get(0), classes.get(1));
+
+        for (Class<?> clazz : classes) {
+            assertEquals(clazz.getName().replace('.', '/'),
+                         clazz.getMethod("name").invoke(null));
+        }
+    }
+
+    @Test
+    public void separatePackages() throws Exception {
+        ClassMaker cm1 = ClassMaker.begin("dedupe.a.Thing").public_().dedupe();
+        cm1.addConstructor().public_();
+        ClassMaker cm2 = ClassMaker.begin("dedupe.b.Thing").public_().dedupe();
+        cm2.addConstructor().public_();
+        assertNotSame(cm1.finish(), cm2.finish());
+    }
+
+    @Test
+    public void exactConstants() throws Exception {
+        var classes = new ArrayList<Class<?>>();
+        for (int i=0; i<2; i++) {
+            ClassMaker cm = ClassMaker.begin("dedupe.Exact").public_().dedupe();
+            MethodMaker mm = cm.addMethod(Object.class, "get").public_().static_();
+            mm.return_(mm.var(Object.class).setExact(new Object()));
+            classes.add(cm.finish());
+        }
+        assertNotSame(classes.get(0), classes.get(1));
+    }
+
+    @Test
+    public void nested() throws Exception {
+        var classes = new ArrayList<Class<?>>();
+        for (int i=0; i<2; i++) {
+            ClassMaker cm = ClassMaker.begin("dedupe.Outer").public_().dedupe();
+            ClassMaker inner = cm.addInnerClass("Inner").static_().dedupe();
+            classes.add(cm.finish());
+            classes.add(inner.finish());
+        }
+        assertNotSame(classes.get(0), classes.get(2));
+        assertNotSame(classes.get(1), classes.get(3));
+    }
+
+    @Test
+    public void lookup() throws Exception {
+        var classes = new ArrayList<Class<?>>();
+        for (int i=0; i<2; i++) {
+            ClassMaker cm = ClassMaker.begin(null, MethodHandles.lookup()).dedupe();
+            cm.addConstructor();
+            classes.add(cm.finish());
+        }
+        assertNotSame(classes.get(0), classes.get(1));
+    }
+
+    private static Class<?> make(int value, boolean dedupe) {
+        ClassMaker cm = ClassMaker.begin("dedupe.Thing").public_();
+        if (dedupe) {
+            cm.dedupe();
+        }
+
+        cm.addField(cm, "self").private_().static_();
+        cm.addConstructor().public_();
+
+        MethodMaker mm = cm.addMethod(cm, "make").public_().static_();
+        var obj = mm.new_(cm);
+        mm.field("self").set(obj);
+        mm.return_(obj);
+
+        mm = cm.addMethod(int.class, "value").public_();
+        mm.return_(value);
+
+        mm = cm.addMethod(String.class, "name").public_().static_();
+        mm.return_(mm.class_().invoke("getName"));
+
+        return cm.finish();
+    }
+}
@@ -346,4 +346,143 @@ public class FinallyTest {
             }
         }
     }
+
+    @Test
+    public void shared() throws Exception {
+        shared(int.class);
+        shared(null);
+    }
+
+    private void shared(Class<?> returnType) throws Exception {
+        ClassMaker cm = ClassMaker.begin().public_();
+        cm.addField(int.class, "counter").public_().static_();
+        MethodMaker mm = cm.addMethod(returnType, "run", int.class).public_().static_();
+
+        var counter = mm.field("counter");
+        var param = mm.param(0);
+
+        Label start = mm.label().here();
+
+        Label outsideA = mm.label();
+        Label outsideB = mm.label();
+        Label inside = mm.label();
+
+        int[] cases = {0, 1, 2, 3, 4, 5};
+        Label[] labels = new Label[cases.length];
+        for (int i=0; i<labels.length; i++) {
+            labels[i] = mm.label();
+        }
+
+        Label defaultLabel = mm.label();
+        param.switch_(defaultLabel, cases, labels);
+
+        labels[0].here();
+        if (returnType == null) {
+            mm.return_();
+        } else {
+            mm.return_(10);
+        }
+
+        labels[1].here();
+        mm.goto_(outsideA);
+
+        labels[2].here();
+        mm.goto_(outsideB);
+
+        labels[3].here();
+        mm.new_(Exception.class, "wrong").throw_();
+
+        labels[4].here();
+        param.ifEq(4, outsideA);
+        mm.goto_(defaultLabel);
+
+        labels[5].here();
+        mm.goto_(inside);
+
+        inside.here();
+        counter.inc(1000);
+
+        defaultLabel.here();
+
+        int[] calls = new int[2];
+
+        mm.sharedFinally(start, exVar -> {
+            calls[exVar == null ? 0 : 1]++;
+            counter.inc(1);
+        });
+
+        assertEquals(1, calls[0]);
+        assertEquals(1, calls[1]);
+
+        counter.inc(100);
+        if (returnType != null) {
+            mm.return_(99);
+        } else {
+            mm.return_();
+        }
+
+        outsideA.here();
+        counter.inc(200);
+        if (returnType != null) {
+            mm.return_(1);
+        } else {
+            mm.return_();
+        }
+
+        outsideB.here();
+        counter.inc(300);
+        if (returnType != null) {
+            mm.return_(2);
+        } else {
+            mm.return_();
+        }
+
+        var clazz = cm.finish();
+        var method = clazz.getMethod("run", int.class);
+        var field = clazz.getField("counter");
+
+        int[][] expect = {
+            {0, 10, 1}, {1, 1, 201}, {2, 2, 301}, {4, 1, 201}, {5, 99, 1101}, {6, 99, 101},
+        };
+
+        for (int[] e : expect) {
+            field.set(null, 0);
+            Object result = method.invoke(null, e[0]);
+            if (returnType != null) {
+                assertEquals(e[1], result);
+            }
+            assertEquals(e[2], field.get(null));
+        }
+
+        field.set(null, 0);
+        try {
+            method.invoke(null, 3);
+            fail();
+        } catch (InvocationTargetException e) {
+           assertEquals("wrong", e.getCause().getMessage());
+        }
+        assertEquals(1, field.get(null));
+    }
+
+    @Test
+    public void sharedSingleExit() throws Exception {
+        // With only one normal exit, the handler isn't shared.
+        ClassMaker cm = ClassMaker.begin().public_();
+        cm.addField(int.class, "counter").public_().static_();
+        MethodMaker mm = cm.addMethod(null, "run").public_().static_();
+
+        var counter = mm.field("counter");
+        Label start = mm.label().here();
+        counter.inc(10);
+        int[] calls = new int[1];
+        mm.sharedFinally(start, () -> {
+            calls[0]++;
+            counter.inc(1);
+        });
+        assertEquals(2, calls[0]);
+
+        var clazz = cm.finish();
+        clazz.getMethod("run").invoke(null);
+        assertEquals(11, clazz.getField("counter").get(null));
+    }
 }
@@ -0,0 +1,190 @@
+/*
+ *  Copyright 2026 Cojen.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.cojen.maker;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import java.util.Arrays;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ *
+ *
+ * @author Brian S. O'Neill
+ */
+public class FlyweightTest {
+    public static void main(String[] args) throws Exception {
+        org.junit.runner.JUnitCore.main(FlyweightTest.class.getName());
+    }
+
+    @Test
+    public void littleEndian() throws Exception {
+        basic(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Test
+    public void bigEndian() throws Exception {
+        basic(ByteOrder.BIG_ENDIAN);
+    }
+
+    private void basic(ByteOrder order) throws Exception {
+        var fm = FlyweightMaker.begin(null, null, order)
+            .field("id", long.class)
+            .field("price", double.class)
+            .field("qty", int.class)
+            .field("flag", boolean.class)
+            .field("code", byte.class)
+            .field("letter", char.class)
+            .field("small", short.class)
+            .field("ratio", float.class)
+            .field("low", int.class, 0);
+
+        assertEquals(8 + 8 + 4 + 1 + 1 + 2 + 2 + 4, fm.size());
+
+        Class<?> clazz = fm.finish();
+        int size = clazz.getField("SIZE").getInt(null);
+        assertEquals(30, size);
+
+        var bb = ByteBuffer.allocate(100).order(order);
+        Object fw = clazz.getConstructor().newInstance();
+        assertSame(fw, clazz.getMethod("wrap", ByteBuffer.class, int.class).invoke(fw, bb, 10));
+        assertSame(bb, clazz.getMethod("buffer").invoke(fw));
+        assertEquals(10, clazz.getMethod("offset").invoke(fw));
+
+        set(fw, "id", long.class, 0x1234_5678_9abc_def0L);
+        set(fw, "price", double.class, 12.5);
+        set(fw, "qty", int.class, 100);
+        set(fw, "flag", boolean.class, true);
+        set(fw, "code", byte.class, (byte) -3);
+        set(fw, "letter", char.class, 'x');
+        set(fw, "small", short.class, (short) -1000);
+        set(fw, "ratio", float.class, 0.25f);
+
+        assertEquals(0x1234_5678_9abc_def0L, bb.getLong(10));
+        assertEquals(12.5, bb.getDouble(18), 0.0);
+        assertEquals(100, bb.getInt(26));
+        assertEquals(1, bb.get(30));
+        assertEquals(-3, bb.get(31));
+        assertEquals('x', bb.getChar(32));
+        assertEquals(-1000, bb.getShort(34));
+        assertEquals(0.25f, bb.getFloat(36), 0.0f);
+
+        assertEquals(0x1234_5678_9abc_def0L, get(fw, "id"));
+        assertEquals(12.5, get(fw, "price"));
+        assertEquals(100, get(fw, "qty"));
+        assertEquals(true, get(fw, "flag"));
+        assertEquals((byte) -3, get(fw, "code"));
+        assertEquals('x', get(fw, "letter"));
+        assertEquals((short) -1000, get(fw, "small"));
+        assertEquals(0.25f, get(fw, "ratio"));
+        assertEquals(bb.getInt(10), get(fw, "low"));
+
+        set(fw, "flag", boolean.class, false);
+        assertEquals(false, get(fw, "flag"));
+
+        // Bulk copies.
+
+        var bytes = new byte[size + 2];
+        clazz.getMethod("copyTo", byte[].class, int.class).invoke(fw, bytes, 2);
+        var expect = new byte[size];
+        bb.get(10, expect);
+        assertArrayEquals(expect, Arrays.copyOfRange(bytes, 2, bytes.length));
+
+        Object fw2 = clazz.getConstructor().newInstance();
+        clazz.getMethod("wrap", ByteBuffer.class, int.class).invoke(fw2, bb, 50);
+        clazz.getMethod("copyFrom", clazz).invoke(fw2, fw);
+        assertEquals(0x1234_5678_9abc_def0L, get(fw2, "id"));
+        assertEquals(100, get(fw2, "qty"));
+
+        Arrays.fill(bytes, (byte) 0);
+        clazz.getMethod("copyFrom", byte[].class, int.class).invoke(fw2, bytes, 1);
+        assertEquals(0L, get(fw2, "id"));
+        assertEquals(0, get(fw2, "qty"));
+
+        // Bounds are checked when wrapping.
+        try {
+            clazz.getMethod("wrap", ByteBuffer.class, int.class).invoke(fw, bb, 71);
+            fail();
+        } catch (InvocationTargetException e) {
+            assertTrue(e.getCause() instanceof IndexOutOfBoundsException);
+        }
+    }
+
+    @Test
+    public void broken() throws Exception {
+        var fm = FlyweightMaker.begin(null, null, ByteOrder.nativeOrder());
+
+        try {
+            fm.field("wrap", int.class);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("reserved"));
+        }
+
+        fm.field("a", int.class);
+
+        try {
+            fm.field("a", int.class);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+
+        try {
+            fm.field("b", String.class);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("Unsupported"));
+        }
+
+        try {
+            fm.field("c", int.class, -1);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+
+        fm.finish();
+
+        try {
+            fm.field("d", int.class);
+            fail();
+        } catch (IllegalStateException e) {
+        }
+
+        try {
+            fm.finish();
+            fail();
+        } catch (IllegalStateException e) {
+        }
+    }
+
+    private static void set(Object fw, String name, Class<?> type, Object value)
+        throws Exception
+    {
+        fw.getClass().getMethod(name, type).invoke(fw, value);
+    }
+
+    private static Object get(Object fw, String name) throws Exception {
+        Method m = fw.getClass().getMethod(name);
+        return m.invoke(fw);
+    }
+}
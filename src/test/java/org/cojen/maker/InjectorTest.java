@@ -17,9 +17,12 @@
 package org.cojen.maker;
 
 import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 
 import java.lang.ref.WeakReference;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.WeakHashMap;
 
 import org.junit.*;
@@ -95,6 +98,42 @@ public class InjectorTest {
         fail();
     }
 
+    @Test
+    public void unloadingCachedTypes() throws Exception {
+        // Types which are resolved by name against an injector shouldn't keep its classes
+        // reachable, even when the soft references in the type caches aren't cleared.
+
+        var refs = new ArrayList<WeakReference<Class<?>>>();
+
+        ClassMaker cm = ClassMaker.begin("a.b.Cached", null, new Object()).public_();
+        cm.addConstructor().public_();
+        Class<?> first = cm.finish();
+        refs.add(new WeakReference<>(first));
+
+        cm = cm.another("a.b.Cached").public_();
+        MethodMaker mm = cm.addMethod(Object.class, "make").public_().static_();
+        mm.return_(mm.new_(first.getName()));
+        Class<?> second = cm.finish();
+        refs.add(new WeakReference<>(second));
+
+        assertSame(first, second.getMethod("make").invoke(null).getClass());
+
+        // help GC
+        cm = null;
+        mm = null;
+        first = null;
+        second = null;
+
+        for (int i=0; i<10; i++) {
+            if (refs.stream().allMatch(ref -> ref.get() == null)) {
+                return;
+            }
+            System.gc();
+        }
+
+        fail();
+    }
+
     @Test
     public void group() throws Exception {
         // Verify that the ClassInjector.Group is strongly referenced.
@@ -165,4 +204,60 @@ public class InjectorTest {
         assertEquals(o1.getClass().getClassLoader().getParent(),
                      o2.getClass().getClassLoader().getParent());
     }
+
+    @Test
+    public void parallelCapable() throws Exception {
+        // Class loading and definition shouldn't synchronize on the injector loaders.
+
+        ClassMaker cm = ClassMaker.begin("a.b.c.Parallel").public_();
+        assertTrue(cm.classLoader().isRegisteredAsParallelCapable());
+
+        Class<?> clazz = cm.finish();
+        ClassLoader loader = clazz.getClassLoader();
+        assertTrue(loader.isRegisteredAsParallelCapable());
+    }
+
+    @Test
+    public void concurrentGeneration() throws Exception {
+        // Generate classes in a shared package from many threads, which all need the same
+        // package lookup and constants registry.
+        String pkg = "a.b.gen" + System.identityHashCode(new Object());
+
+        var threads = new ArrayList<Thread>();
+        var failures = new ArrayList<Throwable>();
+
+        for (int t=0; t<10; t++) {
+            final int id = t;
+            threads.add(new Thread(() -> {
+                try {
+                    for (int i=0; i<10; i++) {
+                        ClassMaker cm = ClassMaker.begin(pkg + ".Thing").public_();
+                        MethodMaker mm = cm.addMethod(Object.class, "get").public_().static_();
+                        var value = List.of(id, i);
+                        mm.return_(mm.var(List.class).setExact(value));
+                        var lookup = cm.finishLookup();
+                        var mh = lookup.findStatic(lookup.lookupClass(), "get",
+                                                   MethodType.methodType(Object.class));
+                        assertSame(value, mh.invoke());
+                    }
+                } catch (Throwable e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            }));
+        }
+
+        for (Thread t : threads) {
+            t.start();
+        }
+
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        if (!failures.isEmpty()) {
+            throw new AssertionError(failures.get(0));
+        }
+    }
 }
@@ -0,0 +1,204 @@
+/*
+ *  Copyright 2026 Cojen.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.cojen.maker;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+import java.lang.reflect.Method;
+
+import java.util.List;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ *
+ *
+ * @author Brian S. O'Neill
+ */
+public class InstrumentTest {
+    public static void main(String[] args) throws Exception {
+        org.junit.runner.JUnitCore.main(InstrumentTest.class.getName());
+    }
+
+    private static MethodStats find(List<MethodStats> list, String methodName) {
+        for (MethodStats stats : list) {
+            if (stats.methodName().equals(methodName)) {
+                return stats;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void counts() throws Exception {
+        ClassMaker cm = ClassMaker.begin().public_().instrument(0);
+
+        cm.addConstructor().public_();
+
+        MethodMaker mm = cm.addMethod(int.class, "add", int.class, int.class).public_().static_();
+        mm.return_(mm.param(0).add(mm.param(1)));
+
+        mm = cm.addMethod(null, "nothing").public_();
+
+        mm = cm.addMethod(null, "helper").static_().synthetic();
+
+        cm.addMethod(null, "abs").public_().abstract_();
+        cm.abstract_();
+
+        Class<?> clazz = cm.finish();
+
+        List<MethodStats> list = MethodStats.forClass(clazz);
+        assertEquals(2, list.size());
+        assertNull(find(list, "helper"));
+        assertNull(find(list, "abs"));
+
+        Method add = clazz.getMethod("add", int.class, int.class);
+        for (int i=0; i<5; i++) {
+            assertEquals(i + 10, add.invoke(null, i, 10));
+        }
+
+        MethodStats stats = find(list, "add");
+        assertEquals(cm.name(), stats.className());
+        assertEquals("(II)I", stats.descriptor());
+        assertEquals(5, stats.invocations());
+        assertEquals(0, stats.samples());
+        assertEquals(0, stats.latencyHistogram().length);
+        assertEquals(0, find(list, "nothing").invocations());
+
+        assertTrue(MethodStats.all().contains(stats));
+
+        stats.reset();
+        assertEquals(0, stats.invocations());
+
+        assertTrue(MethodStats.forClass(String.class).isEmpty());
+    }
+
+    @Test
+    public void latency() throws Exception {
+        ClassMaker cm = ClassMaker.begin().public_().instrument(1);
+
+        MethodMaker mm = cm.addMethod(int.class, "test", int.class).public_().static_();
+        {
+            var x = mm.param(0);
+            Label notNeg = mm.label();
+            x.ifGe(0, notNeg);
+            mm.new_(IllegalArgumentException.class).throw_();
+            notNeg.here();
+            Label notZero = mm.label();
+            x.ifNe(0, notZero);
+            mm.return_(-1);
+            notZero.here();
+            mm.var(Thread.class).invoke("sleep", 1);
+            mm.return_(x.add(1));
+        }
+
+        cm.addMethod(null, "empty").public_().static_();
+
+        Class<?> clazz = cm.finish();
+
+        Method test = clazz.getMethod("test", int.class);
+        assertEquals(-1, test.invoke(null, 0));
+        assertEquals(2, test.invoke(null, 1));
+        try {
+            test.invoke(null, -1);
+            fail();
+        } catch (java.lang.reflect.InvocationTargetException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+
+        clazz.getMethod("empty").invoke(null);
+
+        List<MethodStats> list = MethodStats.forClass(clazz);
+        MethodStats stats = find(list, "test");
+        assertEquals(3, stats.invocations());
+        assertEquals(3, stats.samples());
+        assertTrue(stats.latencySum() >= 1_000_000);
+
+        long[] histogram = stats.latencyHistogram();
+        assertEquals(64, histogram.length);
+        long total = 0;
+        long slow = 0;
+        for (int i=0; i<histogram.length; i++) {
+            total += histogram[i];
+            if (i >= 19) {
+                slow += histogram[i];
+            }
+        }
+        assertEquals(3, total);
+        assertEquals(1, slow);
+
+        assertEquals(1, find(list, "empty").samples());
+    }
+
+    @Test
+    public void hidden() throws Throwable {
+        ClassMaker cm = ClassMaker.begin(null, MethodHandles.lookup()).instrument(0);
+        MethodMaker mm = cm.addMethod(int.class, "test").static_();
+        mm.return_(123);
+
+        MethodHandles.Lookup lookup = cm.finishHidden();
+        Class<?> clazz = lookup.lookupClass();
+        MethodHandle test = lookup.findStatic(clazz, "test", MethodType.methodType(int.class));
+        assertEquals(123, (int) test.invoke());
+        assertEquals(123, (int) test.invoke());
+
+        List<MethodStats> list = MethodStats.forClass(clazz);
+        assertEquals(1, list.size());
+        assertEquals(2, list.get(0).invocations());
+    }
+
+    @Test
+    public void failedFinish() throws Exception {
+        ClassMaker cm = ClassMaker.begin().public_().instrument(0);
+        cm.addMethod(int.class, "test").public_().static_();
+
+        try {
+            cm.finish();
+            fail();
+        } catch (IllegalStateException e) {
+            // End reached without returning.
+        }
+
+        for (MethodStats stats : MethodStats.all()) {
+            assertNotEquals(cm.name(), stats.className());
+        }
+    }
+
+    @Test
+    public void broken() throws Exception {
+        try {
+            ClassMaker.begin().instrument(3);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+
+        try {
+            ClassMaker.begin().instrument(-1);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+
+        try {
+            ClassMaker.beginExternal("org.cojen.maker.InstrumentFake").instrument(0);
+            fail();
+        } catch (IllegalStateException e) {
+        }
+    }
+}
@@ -1031,6 +1031,35 @@ public class InvokeTest {
         cm.finish().getMethod("run").invoke(null);
     }
 
+    @Test
+    public void overloadArity() throws Exception {
+        // Overloaded methods are indexed by name and parameter count, but varargs methods
+        // must still be found for any number of arguments.
+
+        BaseType.MethodIndex index = BaseType.from(StringBuilder.class).methodIndex("insert");
+        assertNotNull(index);
+        assertEquals(0, index.withParamCount(1).length);
+        assertTrue(index.withParamCount(2).length > 5);
+        assertTrue(index.withParamCount(4).length >= 1);
+        assertEquals(0, index.withParamCount(100).length);
+        assertNull(BaseType.from(StringBuilder.class).methodIndex("xxx"));
+
+        ClassMaker cm = ClassMaker.begin().public_();
+        MethodMaker mm = cm.addMethod(String.class, "run").public_().static_();
+
+        var b = mm.new_(StringBuilder.class);
+        b.invoke("append", "a");
+        b.invoke("append", 1);
+        b.invoke("insert", 0, 'c');
+        b.invoke("insert", 0, "xyz", 1, 2);
+        b.invoke("append", mm.var(String.class).invoke("format", "%s%s", 2, 3));
+        b.invoke("append", mm.var(String.class).invoke("format", "%s", 4));
+        b.invoke("append", mm.var(String.class).invoke("format", "5"));
+        mm.return_(b.invoke("toString"));
+
+        assertEquals("yca12345", cm.finish().getMethod("run").invoke(null));
+    }
+
     @Test
     public void dynamicConstant() throws Exception {
         // Test passing a dynamic constant as a bootstrap arg.
@@ -0,0 +1,174 @@
+/*
+ *  Copyright 2026 Cojen.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.cojen.maker;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+import java.lang.reflect.Method;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ *
+ *
+ * @author Brian S. O'Neill
+ */
+public class LazyConstantTest {
+    public static void main(String[] args) throws Exception {
+        org.junit.runner.JUnitCore.main(LazyConstantTest.class.getName());
+    }
+
+    private static final AtomicInteger cInitCount = new AtomicInteger();
+
+    public static int[] makeTable(int size) {
+        cInitCount.incrementAndGet();
+        var table = new int[size];
+        for (int i=0; i<size; i++) {
+            table[i] = i * i;
+        }
+        return table;
+    }
+
+    @Test
+    public void basic() throws Exception {
+        cInitCount.set(0);
+
+        ClassMaker cm = ClassMaker.begin().public_();
+        cm.addField(int.class, "eager").public_().static_().final_().init(10);
+
+        MethodMaker mm = cm.addLazyConstant(int[].class, "TABLE");
+        mm.return_(mm.var(LazyConstantTest.class).invoke("makeTable", 100));
+
+        mm = cm.addLazyConstant(long.class, "SUM");
+        {
+            var table = mm.lazyConstant("TABLE");
+            var sum = mm.var(long.class).set(0);
+            var ix = mm.var(int.class).set(0);
+            Label start = mm.label().here();
+            Label end = mm.label();
+            ix.ifGe(table.alength(), end);
+            sum.inc(table.aget(ix));
+            ix.inc(1);
+            mm.goto_(start);
+            end.here();
+            mm.return_(sum);
+        }
+
+        mm = cm.addMethod(int[].class, "table").public_().static_();
+        mm.return_(mm.lazyConstant("TABLE"));
+
+        mm = cm.addMethod(long.class, "sum").public_().static_();
+        mm.return_(mm.lazyConstant("SUM"));
+
+        Class<?> clazz = cm.finish();
+
+        assertEquals(10, clazz.getField("eager").get(null));
+        assertEquals(0, cInitCount.get());
+
+        Method sum = clazz.getMethod("sum");
+        long expect = 0;
+        for (int i=0; i<100; i++) {
+            expect += i * i;
+        }
+        assertEquals(expect, sum.invoke(null));
+        assertEquals(expect, sum.invoke(null));
+        assertEquals(1, cInitCount.get());
+
+        Method table = clazz.getMethod("table");
+        Object t1 = table.invoke(null);
+        assertSame(t1, table.invoke(null));
+        assertEquals(99 * 99, ((int[]) t1)[99]);
+        assertEquals(1, cInitCount.get());
+    }
+
+    @Test
+    public void hidden() throws Throwable {
+        ClassMaker cm = ClassMaker.begin(null, MethodHandles.lookup()).public_();
+
+        MethodMaker mm = cm.addLazyConstant(String.class, "name");
+        mm.return_(mm.concat("hello", '-', mm.var(System.class).invoke("nanoTime")));
+
+        mm = cm.addMethod(String.class, "name").public_().static_();
+        mm.return_(mm.lazyConstant("name"));
+
+        MethodHandles.Lookup lookup = cm.finishHidden();
+        var handle = lookup.findStatic(lookup.lookupClass(), "name",
+                                       MethodType.methodType(String.class));
+        var name = (String) handle.invoke();
+        assertTrue(name.startsWith("hello-"));
+        assertSame(name, handle.invoke());
+    }
+
+    @Test
+    public void failure() throws Exception {
+        ClassMaker cm = ClassMaker.begin().public_();
+
+        MethodMaker mm = cm.addLazyConstant(String.class, "broken");
+        mm.new_(IllegalStateException.class, "broken").throw_();
+
+        mm = cm.addMethod(String.class, "test").public_().static_();
+        mm.return_(mm.lazyConstant("broken"));
+
+        Method test = cm.finish().getMethod("test");
+
+        for (int i=0; i<2; i++) {
+            try {
+                test.invoke(null);
+                fail();
+            } catch (java.lang.reflect.InvocationTargetException e) {
+                assertTrue(e.getCause() instanceof BootstrapMethodError);
+            }
+        }
+    }
+
+    @Test
+    public void broken() throws Exception {
+        ClassMaker cm = ClassMaker.begin();
+
+        try {
+            cm.addLazyConstant(void.class, "x");
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+
+        MethodMaker mm = cm.addLazyConstant(int.class, "x");
+        mm.return_(1);
+
+        try {
+            cm.addLazyConstant(long.class, "x");
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("already"));
+        }
+
+        mm = cm.addMethod(int.class, "test").static_();
+
+        try {
+            mm.lazyConstant("y");
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("not found"));
+        }
+
+        mm.return_(mm.lazyConstant("x"));
+        cm.finish();
+    }
+}
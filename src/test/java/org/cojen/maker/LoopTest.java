@@ -0,0 +1,106 @@
+/*
+ *  Copyright 2026 Cojen.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.cojen.maker;
+
+import java.lang.invoke.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ *
+ *
+ * @author Brian S. O'Neill
+ */
+public class LoopTest {
+    public static void main(String[] args) throws Exception {
+        org.junit.runner.JUnitCore.main(LoopTest.class.getName());
+    }
+
+    @Test
+    public void sum() throws Throwable {
+        for (int factor=1; factor<=5; factor++) {
+            MethodMaker mm = MethodMaker.begin
+                (MethodHandles.lookup(), long.class, "_", int[].class);
+            var array = mm.param(0);
+            var sum = mm.var(long.class).set(0);
+            mm.forRange(0, array.alength(), factor, i -> sum.inc(array.aget(i)));
+            mm.return_(sum);
+            MethodHandle mh = mm.finish();
+
+            for (int len=0; len<=12; len++) {
+                var values = new int[len];
+                long expect = 0;
+                for (int i=0; i<len; i++) {
+                    values[i] = i * 3 + 1;
+                    expect += values[i];
+                }
+                assertEquals(expect, (long) mh.invoke(values));
+            }
+        }
+    }
+
+    @Test
+    public void order() throws Throwable {
+        for (int factor=1; factor<=4; factor++) {
+            MethodMaker mm = MethodMaker.begin
+                (MethodHandles.lookup(), null, "_", List.class, int.class, int.class);
+            var list = mm.param(0);
+            mm.forRange(mm.param(1), mm.param(2), factor, i -> list.invoke("add", i));
+            MethodHandle mh = mm.finish();
+
+            verify(mh, 3, 10);
+            verify(mh, 5, 5);
+            verify(mh, 10, 3);
+            verify(mh, -2, 2);
+            verify(mh, Integer.MIN_VALUE, Integer.MIN_VALUE + 2);
+            verify(mh, Integer.MAX_VALUE - 5, Integer.MAX_VALUE);
+        }
+    }
+
+    private static void verify(MethodHandle mh, int start, int end) throws Throwable {
+        var expect = new ArrayList<Integer>();
+        for (int i=start; i<end; i++) {
+            expect.add(i);
+        }
+        var actual = new ArrayList<Integer>();
+        mh.invoke(actual, start, end);
+        assertEquals(expect, actual);
+    }
+
+    @Test
+    public void broken() throws Throwable {
+        MethodMaker mm = MethodMaker.begin(MethodHandles.lookup(), null, "_");
+
+        try {
+            mm.forRange(0, 10, 0, i -> {});
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("Unroll"));
+        }
+
+        try {
+            mm.forRange("a", 10, 1, i -> {});
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("conversion"));
+        }
+    }
+}
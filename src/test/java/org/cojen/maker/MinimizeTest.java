@@ -0,0 +1,109 @@
+/*
+ *  Copyright 2026 Cojen.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.cojen.maker;
+
+import java.lang.reflect.Method;
+
+import java.nio.charset.StandardCharsets;
+
+import java.util.List;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ *
+ *
+ * @author Brian S. O'Neill
+ */
+public class MinimizeTest {
+    public static void main(String[] args) throws Exception {
+        org.junit.runner.JUnitCore.main(MinimizeTest.class.getName());
+    }
+
+    @Test
+    public void savings() throws Exception {
+        ClassMaker full = make(false);
+        byte[] fullBytes = full.finishBytes();
+        assertEquals(0, full.minimizedBytes());
+
+        ClassMaker min = make(true);
+        assertEquals(0, min.minimizedBytes());
+        byte[] minBytes = min.finishBytes();
+
+        assertTrue(minBytes.length < fullBytes.length);
+        assertEquals(fullBytes.length - minBytes.length, min.minimizedBytes());
+
+        String minStr = new String(minBytes, StandardCharsets.ISO_8859_1);
+        for (String str : new String[] {
+                "SourceFile", "Foo.java", "LineNumberTable", "LocalVariableTable",
+                "LocalVariableTypeTable", "MethodParameters", "someTotal", "someItems"})
+        {
+            assertFalse(str, minStr.contains(str));
+        }
+    }
+
+    @Test
+    public void works() throws Exception {
+        Class<?> clazz = make(true).finish();
+        Method m = clazz.getMethod("sum", List.class, int.class);
+        assertEquals(110, m.invoke(null, List.of("a", "bb", "ccc", "dddd"), 100));
+        assertFalse(m.getParameters()[0].isNamePresent());
+    }
+
+    @Test
+    public void nothingSaved() throws Exception {
+        ClassMaker cm = ClassMaker.begin().public_().minimize();
+        cm.addConstructor().public_();
+        cm.finishBytes();
+        assertEquals(0, cm.minimizedBytes());
+    }
+
+    private static ClassMaker make(boolean minimize) {
+        // Use an explicit name, because the size of the generated name suffix varies.
+        ClassMaker cm = ClassMaker.beginExplicit
+            ("org.cojen.maker.MinimizeTest$$Foo", null, new Object()).public_();
+        if (minimize) {
+            cm.minimize();
+        }
+        cm.sourceFile("Foo.java");
+
+        MethodMaker mm = cm.addMethod(int.class, "sum", List.class, int.class)
+            .public_().static_();
+        mm.param(0).name("someItems").signature(List.class, "<", String.class, ">");
+        mm.param(1).name("someStart").final_();
+
+        mm.lineNum(10);
+        var total = mm.var(int.class).name("someTotal").set(mm.param(1));
+        mm.lineNum(11);
+        var it = mm.var("java.util.Iterator").name("someIterator")
+            .signature("java.util.Iterator", "<", String.class, ">")
+            .set(mm.param(0).invoke("iterator"));
+        Label loop = mm.label().here();
+        Label done = mm.label();
+        mm.lineNum(12);
+        it.invoke("hasNext").ifFalse(done);
+        mm.lineNum(13);
+        total.inc(it.invoke("next").cast(String.class).invoke("length"));
+        mm.goto_(loop);
+        done.here();
+        mm.lineNum(14);
+        mm.return_(total);
+
+        return cm;
+    }
+}
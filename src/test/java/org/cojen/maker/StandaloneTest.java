@@ -18,6 +18,9 @@ package org.cojen.maker;
 
 import java.lang.invoke.*;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.*;
 import static org.junit.Assert.*;
 
@@ -82,4 +85,115 @@ public class StandaloneTest {
         int result = (int) mh.invoke();
         assertEquals(100, result);
     }
+
+    @Test
+    public void tiered() throws Throwable {
+        var type = MethodType.methodType(String.class, int.class);
+        MethodHandle generic = MethodHandles.lookup().findStatic
+            (StandaloneTest.class, "generic", type);
+
+        var tasks = new ArrayList<Runnable>();
+
+        MethodHandle mh = MethodMaker.tiered(MethodHandles.lookup(), "fast", type, generic, mm -> {
+            mm.return_(mm.concat("fast-", mm.param(0)));
+        }, tasks::add);
+
+        assertEquals(type, mh.type());
+        assertEquals(1, tasks.size());
+        assertEquals("generic-1", (String) mh.invokeExact(1));
+
+        tasks.get(0).run();
+
+        assertEquals("fast-2", (String) mh.invokeExact(2));
+
+        try {
+            MethodMaker.tiered(MethodHandles.lookup(), "fast",
+                               MethodType.methodType(String.class), generic, mm -> {}, tasks::add);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("Mismatched"));
+        }
+    }
+
+    @Test
+    public void tieredFailure() throws Throwable {
+        var type = MethodType.methodType(String.class, int.class);
+        MethodHandle generic = MethodHandles.lookup().findStatic
+            (StandaloneTest.class, "generic", type);
+
+        var tasks = new ArrayList<Runnable>();
+
+        MethodHandle mh = MethodMaker.tiered(MethodHandles.lookup(), null, type, generic, mm -> {
+            throw new IllegalStateException("broken");
+        }, tasks::add);
+
+        try {
+            tasks.get(0).run();
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("broken", e.getMessage());
+        }
+
+        assertEquals("generic-3", (String) mh.invokeExact(3));
+    }
+
+    @Test
+    public void batch() throws Throwable {
+        MethodBatch batch = MethodBatch.begin(MethodHandles.lookup());
+
+        var type = MethodType.methodType(int.class, int.class);
+
+        for (int i=0; i<100; i++) {
+            MethodMaker mm = batch.add("eval", type);
+            mm.return_(mm.param(0).add(i));
+        }
+
+        MethodMaker mm = batch.add(null, MethodType.methodType(String.class));
+        var list = mm.var(List.class).setExact(List.of("hello"));
+        mm.return_(list.invoke("get", 0).cast(String.class));
+
+        try {
+            mm.finish();
+            fail();
+        } catch (IllegalStateException e) {
+        }
+
+        assertEquals(101, batch.size());
+
+        List<MethodHandle> handles = batch.finish();
+        assertEquals(101, handles.size());
+
+        Class<?> clazz = null;
+        for (int i=0; i<100; i++) {
+            MethodHandle mh = handles.get(i);
+            assertEquals(type, mh.type());
+            assertEquals(i + 5, (int) mh.invokeExact(5));
+            var info = MethodHandles.lookup().revealDirect(mh);
+            if (clazz == null) {
+                clazz = info.getDeclaringClass();
+                assertTrue(clazz.isHidden());
+                assertEquals("eval", info.getName());
+            } else {
+                assertSame(clazz, info.getDeclaringClass());
+            }
+        }
+
+        assertEquals("hello", (String) handles.get(100).invokeExact());
+
+        try {
+            batch.finish();
+            fail();
+        } catch (IllegalStateException e) {
+        }
+
+        try {
+            batch.add("x", type);
+            fail();
+        } catch (IllegalStateException e) {
+        }
+    }
+
+    public static String generic(int x) {
+        return "generic-" + x;
+    }
 }
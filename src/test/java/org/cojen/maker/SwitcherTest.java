@@ -25,6 +25,7 @@ import java.time.DayOfWeek;
 import java.time.LocalTime;
 import java.time.Month;
 
+import java.util.HashSet;
 import java.util.Set;
 
 import org.junit.*;
@@ -249,6 +250,111 @@ public class SwitcherTest {
         assertEquals(-1, m.invoke(null, 999L));
     }
 
+    @Test
+    public void longSwitch() throws Exception {
+        longSwitch(new long[0]);
+        longSwitch(5);
+        longSwitch(5, -6);
+        // Fits in an int.
+        longSwitch(1, 2, 3, 5, -8, Integer.MAX_VALUE, Integer.MIN_VALUE);
+        // Needs a bias.
+        longSwitch(1L << 40, (1L << 40) + 3, (1L << 40) + 2, (1L << 40) + 10_000_000);
+        longSwitch(Long.MAX_VALUE, Long.MAX_VALUE - 1, Long.MAX_VALUE - 2);
+        // Needs a split.
+        longSwitch(Long.MIN_VALUE, Long.MAX_VALUE, 0, -1, 1L << 32, (1L << 32) + 1,
+              (1L << 32) - 1, (5L << 32) + 7, (5L << 32) - 7, 12345678901L);
+    }
+
+    private void longSwitch(long... keys) throws Exception {
+        longSwitch(long.class, keys);
+        longSwitch(Long.class, keys);
+    }
+
+    private void longSwitch(Class<?> paramType, long... keys) throws Exception {
+        ClassMaker cm = ClassMaker.begin().public_();
+
+        MethodMaker mm = cm.addMethod(int.class, "map", paramType).public_().static_();
+
+        Label[] labels = new Label[keys.length];
+        for (int i=0; i<labels.length; i++) {
+            labels[i] = mm.label();
+        }
+
+        Label notFound = mm.label();
+
+        mm.param(0).switch_(notFound, keys, labels);
+
+        for (int i=0; i<labels.length; i++) {
+            labels[i].here();
+            mm.return_(i + 100);
+        }
+
+        notFound.here();
+        mm.return_(-1);
+
+        var m = cm.finish().getMethod("map", paramType);
+
+        var keySet = new HashSet<Long>();
+        for (int i=0; i<keys.length; i++) {
+            keySet.add(keys[i]);
+            assertEquals(i + 100, m.invoke(null, keys[i]));
+        }
+
+        for (long key : keys) {
+            for (long delta = -2; delta <= 2; delta++) {
+                for (long k : new long[] {key + delta, key ^ (1L << 32), key ^ 0xffff_ffffL}) {
+                    if (!keySet.contains(k)) {
+                        assertEquals(-1, m.invoke(null, k));
+                    }
+                }
+            }
+        }
+
+        if (paramType == Long.class) {
+            try {
+                m.invoke(null, (Long) null);
+                fail();
+            } catch (InvocationTargetException e) {
+                assertTrue(e.getCause() instanceof NullPointerException);
+            }
+        }
+    }
+
+    @Test
+    public void longSwitchInvalid() throws Exception {
+        ClassMaker cm = ClassMaker.begin().public_();
+        MethodMaker mm = cm.addMethod(null, "t1", String.class);
+        Label def = mm.label();
+
+        try {
+            mm.param(0).switch_(def, new long[0]);
+            fail();
+        } catch (IllegalStateException e) {
+        }
+
+        try {
+            mm.var(long.class).switch_(def, new long[1]);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("Number of cases"));
+        }
+
+        try {
+            mm.var(long.class).switch_(def, new long[] {1, 2, 1},
+                                       mm.label(), mm.label(), mm.label());
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("Duplicate"));
+        }
+
+        try {
+            mm.var(long.class).switch_(def, new long[] {5, 5}, mm.label(), mm.label());
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("Duplicate"));
+        }
+    }
+
     @Test
     public void enums() throws Exception {
         doEnums();
@@ -274,6 +380,48 @@ public class SwitcherTest {
         doEnums(ClassMaker.begin(), keys);
     }
 
+    @Test
+    public void enumsDirect() throws Exception {
+        // The enum is visible to the generated class, and so a plain ordinal switch is used,
+        // which doesn't need any inner mapper classes.
+
+        Switcher.NO_SWITCH_BOOTSTRAPS = true;
+        Class<?> clazz;
+        try {
+            ClassMaker cm = ClassMaker.begin().public_();
+            MethodMaker mm = cm.addMethod(int.class, "map", Month.class).public_().static_();
+
+            Month[] keys = Month.values();
+            Label[] labels = new Label[keys.length];
+            for (int i=0; i<keys.length; i++) {
+                keys[i] = Month.of(12 - i);
+                labels[i] = mm.label();
+            }
+
+            Label notFound = mm.label();
+            mm.param(0).switch_(notFound, keys, labels);
+
+            for (int i=0; i<labels.length; i++) {
+                labels[i].here();
+                mm.return_(i + 100);
+            }
+
+            notFound.here();
+            mm.return_(-1);
+
+            clazz = cm.finish();
+        } finally {
+            Switcher.NO_SWITCH_BOOTSTRAPS = false;
+        }
+
+        assertEquals(0, clazz.getDeclaredClasses().length);
+
+        Method m = clazz.getMethod("map", Month.class);
+        for (Month month : Month.values()) {
+            assertEquals(100 + 12 - month.getValue(), m.invoke(null, month));
+        }
+    }
+
     @Test
     public void enumsExternal() throws Exception {
         doEnumsExternal("_Enums$$$");
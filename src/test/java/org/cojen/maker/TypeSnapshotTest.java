@@ -0,0 +1,185 @@
+/*
+ *  Copyright 2026 Cojen.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.cojen.maker;
+
+import java.io.IOException;
+
+import java.lang.invoke.MethodHandles;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.*;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * 
+ *
+ * @author Brian S. O'Neill
+ */
+public class TypeSnapshotTest {
+    public static void main(String[] args) throws Exception {
+        org.junit.runner.JUnitCore.main(TypeSnapshotTest.class.getName());
+    }
+
+    @Test
+    public void writeAndLoad() throws Exception {
+        Path file = Files.createTempFile("snapshot", null);
+        try {
+            // Includes the superclass and interfaces.
+            int count = TypeSnapshot.write(file, Thing.class);
+            assertEquals(4, count);
+
+            assertEquals(count, TypeSnapshot.load(file));
+
+            assertNotNull(TypeSnapshot.find(Thing.class));
+            assertNotNull(TypeSnapshot.find(Comparable.class));
+            assertNull(TypeSnapshot.find(String.class));
+
+            BaseType.clearCaches();
+
+            var type = BaseType.from(Thing.class);
+
+            BaseType.Field field = type.findField("value");
+            assertEquals(BaseType.from(Integer.class), field.type());
+            assertEquals(BaseType.INT, field.type().unbox());
+            assertTrue(field.isStatic());
+            assertNull(type.findField("xxx"));
+
+            var expect = new HashSet<String>();
+            for (var m : Thing.class.getDeclaredMethods()) {
+                expect.add(m.getName() + m.getParameterCount());
+            }
+            for (var c : Thing.class.getDeclaredConstructors()) {
+                expect.add("<init>" + c.getParameterCount());
+            }
+            var actual = new HashSet<String>();
+            for (var key : type.methods().keySet()) {
+                actual.add(key.name + key.paramTypes.length);
+            }
+            assertEquals(expect, actual);
+            assertEquals(3, type.fields().size());
+
+            ClassMaker cm = ClassMaker.begin().public_();
+            MethodMaker mm = cm.addMethod(String.class, "run").public_().static_();
+            var thing = mm.new_(Thing.class, "hello", 1, 2);
+            mm.return_(thing.invoke("describe", 3, 4));
+            assertEquals("hello:1,2,3,4", cm.finish().getMethod("run").invoke(null));
+        } finally {
+            Files.delete(file);
+            BaseType.clearCaches();
+        }
+    }
+
+    @Test
+    public void mismatch() throws Exception {
+        Path file = Files.createTempFile("snapshot", null);
+        try {
+            TypeSnapshot.write(file, Thing.class);
+
+            // Corrupt the stamp of the first entry, which is for the Thing class.
+            byte[] bytes = Files.readAllBytes(file);
+            String location = Thing.class.getResource
+                (Thing.class.getName().replace('.', '/').substring(16) + ".class").toString();
+            int pos = 12 + 2 + Thing.class.getName().length() + 2 + location.length();
+            bytes[pos + 7] ^= 1;
+            Files.write(file, bytes);
+
+            TypeSnapshot.load(file);
+
+            assertNull(TypeSnapshot.find(Thing.class));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void malformed() throws Exception {
+        Path file = Files.createTempFile("snapshot", null);
+        try {
+            Files.write(file, new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+            try {
+                TypeSnapshot.load(file);
+                fail();
+            } catch (IOException e) {
+                assertTrue(e.getMessage().startsWith("Not a type snapshot"));
+            }
+
+            Files.write(file, new byte[] {1, 2});
+            try {
+                TypeSnapshot.load(file);
+                fail();
+            } catch (IOException e) {
+                assertTrue(e.getMessage().startsWith("Malformed"));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void hidden() throws Exception {
+        var lookup = ClassMaker.begin(null, MethodHandles.lookup()).finishHidden();
+
+        Path file = Files.createTempFile("snapshot", null);
+        try {
+            // Only Object is written.
+            assertEquals(1, TypeSnapshot.write(file, lookup.lookupClass()));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    public static class Base {
+        protected final String mName;
+
+        public Base(String name) {
+            mName = name;
+        }
+    }
+
+    public static class Thing extends Base implements Comparable<Thing> {
+        public static Integer value = 10;
+
+        private final int[] mValues;
+        private List<String> mUnused;
+
+        public Thing(String name, int... values) {
+            super(name);
+            mValues = values;
+        }
+
+        public String describe(int... more) {
+            var b = new StringBuilder(mName).append(':');
+            for (int v : mValues) {
+                b.append(v).append(',');
+            }
+            for (int v : more) {
+                b.append(v).append(',');
+            }
+            b.setLength(b.length() - 1);
+            return b.toString();
+        }
+
+        @Override
+        public int compareTo(Thing other) {
+            return mName.compareTo(other.mName);
+        }
+    }
+}
@@ -238,6 +238,101 @@ public class TypeTest {
         assertTrue(type.classExists());
     }
 
+    @Test
+    public void cached() throws Exception {
+        // Class and String lookups are cached, also for the bootstrap class loader.
+
+        assertSame(BaseType.from(String.class), BaseType.from(String.class));
+        assertSame(BaseType.from(int[].class), BaseType.from(int[].class));
+        assertSame(BaseType.from(null, "java.util.List"), BaseType.from(null, "java.util.List"));
+
+        ClassLoader loader = getClass().getClassLoader();
+        BaseType t1 = BaseType.from(loader, "java.util.Map");
+        assertSame(t1, BaseType.from(loader, "java.util.Map"));
+        assertEquals(BaseType.from(Map.class), t1);
+
+        // Concurrent lookups of the same types must agree.
+
+        var types = new BaseType[8];
+        var threads = new Thread[types.length];
+        for (int i=0; i<threads.length; i++) {
+            int ix = i;
+            threads[i] = new Thread(() -> {
+                for (int j=0; j<1000; j++) {
+                    BaseType.from(loader, "java.util.Set");
+                }
+                types[ix] = BaseType.from(TypeTest.class);
+            });
+            threads[i].start();
+        }
+
+        for (int i=0; i<threads.length; i++) {
+            threads[i].join();
+            assertSame(types[0], types[i]);
+        }
+
+        BaseType.clearCaches();
+
+        BaseType t2 = BaseType.from(String.class);
+        assertSame(t2, BaseType.from(String.class));
+        assertEquals(BaseType.from(null, "java.lang.String"), t2);
+    }
+
+    @Test
+    public void lazyMembers() throws Exception {
+        // Members of loaded classes are only examined when requested by name.
+
+        var type = (BaseType.Clazz) BaseType.from(Members.class);
+
+        BaseType.Field field = type.findField("b");
+        assertEquals(BaseType.INT, field.type());
+        assertNull(type.findField("c"));
+        assertSame(field, type.field("b"));
+        assertNull(type.mFields);
+
+        var key = new BaseType.MethodKey(BaseType.VOID, "run", BaseType.from(String.class));
+        BaseType.Method method = type.method(key);
+        assertNotNull(method);
+        assertNull(type.method(new BaseType.MethodKey(BaseType.VOID, "run", BaseType.INT)));
+        assertNull(type.mMethods);
+
+        Set<BaseType.Method> found = type.findMethods
+            ("run", new BaseType[] {BaseType.from(String.class)}, 0, 0, null, null);
+        assertEquals(Set.of(method), found);
+        assertNull(type.mMethods);
+
+        // Loading all members must produce the same instances.
+
+        assertSame(field, type.fields().get("b"));
+        assertSame(method, type.methods().get(key));
+        // Check specific members, since code coverage tools can add synthetic ones.
+        assertTrue(type.fields().keySet().containsAll(Set.of("a", "b", "s")));
+        Set<BaseType.MethodKey> keys = type.methods().keySet();
+        assertTrue(keys.contains(key));
+        assertTrue(keys.contains(new BaseType.MethodKey
+                                 (BaseType.INT, "run", BaseType.INT, BaseType.INT)));
+        assertTrue(keys.contains(new BaseType.MethodKey(BaseType.VOID, "other")));
+        assertTrue(keys.contains(new BaseType.MethodKey(BaseType.VOID, "<init>")));
+    }
+
+    static class Members {
+        int a, b;
+        String s;
+
+        Members() {
+        }
+
+        void run(String s) {
+        }
+
+        int run(int x, int y) {
+            return x + y;
+        }
+
+        void other() {
+        }
+    }
+
     @Test
     public void setType() throws Exception {
         // Test that a variable of type Class can be be assigned by a Type instance.
@@ -0,0 +1,146 @@
+/*
+ *  Copyright 2026 Cojen.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.cojen.maker;
+
+import java.lang.invoke.*;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Requires the {@code jdk.incubator.vector} module, or else the tests are skipped.
+ *
+ * @author Brian S. O'Neill
+ */
+public class VectorTest {
+    public static void main(String[] args) throws Exception {
+        org.junit.runner.JUnitCore.main(VectorTest.class.getName());
+    }
+
+    @Before
+    public void checkModule() {
+        Assume.assumeTrue("Vector module isn't available",
+                          ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent());
+    }
+
+    @Test
+    public void sumInts() throws Throwable {
+        MethodMaker mm = MethodMaker.begin(MethodHandles.lookup(), int.class, "_", int[].class);
+        var array = mm.param(0);
+        var vm = VectorMaker.of(mm, int.class);
+        var sum = mm.var(int.class).set(0);
+        vm.loop(0, array.alength(), (i, mask) -> {
+            sum.inc(vm.reduce(vm.load(array, i, mask), "ADD", mask));
+        });
+        mm.return_(sum);
+        MethodHandle mh = mm.finish();
+
+        for (int len=0; len<100; len++) {
+            var values = new int[len];
+            int expect = 0;
+            for (int i=0; i<len; i++) {
+                values[i] = i * 7 - 50;
+                expect += values[i];
+            }
+            assertEquals(expect, (int) mh.invoke(values));
+        }
+    }
+
+    @Test
+    public void scaleDoubles() throws Throwable {
+        MethodMaker mm = MethodMaker.begin
+            (MethodHandles.lookup(), null, "_", double[].class, double[].class, int.class);
+        var src = mm.param(0);
+        var dst = mm.param(1);
+        var vm = VectorMaker.of(mm, double.class);
+        var factor = vm.broadcast(2.5);
+        vm.loop(mm.param(2), src.alength(), (i, mask) -> {
+            vm.store(vm.load(src, i, mask).invoke("mul", factor), dst, i, mask);
+        });
+        MethodHandle mh = mm.finish();
+
+        for (int len=0; len<40; len++) {
+            for (int start=0; start<=Math.min(len, 5); start++) {
+                var values = new double[len];
+                for (int i=0; i<len; i++) {
+                    values[i] = i + 0.5;
+                }
+                var result = new double[len];
+                mh.invoke(values, result, start);
+                for (int i=0; i<len; i++) {
+                    assertEquals(i < start ? 0.0 : values[i] * 2.5, result[i], 0.0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void maxLongs() throws Throwable {
+        MethodMaker mm = MethodMaker.begin(MethodHandles.lookup(), long.class, "_", long[].class);
+        var array = mm.param(0);
+        var vm = VectorMaker.of(mm, long.class, "SPECIES_128");
+        var max = vm.zero().invoke("add", Long.MIN_VALUE);
+        vm.loop(0, array.alength(), (i, mask) -> {
+            var v = vm.load(array, i, mask);
+            if (mask == null) {
+                max.set(max.invoke("max", v));
+            } else {
+                max.set(max.invoke("blend", max.invoke("max", v), mask));
+            }
+        });
+        mm.return_(vm.reduce(max, "MAX", null));
+        MethodHandle mh = mm.finish();
+
+        assertEquals(Long.MIN_VALUE, (long) mh.invoke(new long[0]));
+        assertEquals(9L, (long) mh.invoke(new long[] {3, 9, -1}));
+        assertEquals(-1L, (long) mh.invoke(new long[] {-5, -1, -8, -9, -3}));
+    }
+
+    @Test
+    public void speciesInBranch() throws Throwable {
+        MethodMaker mm = MethodMaker.begin
+            (MethodHandles.lookup(), int.class, "_", int[].class, boolean.class);
+        var array = mm.param(0);
+        var vm = VectorMaker.of(mm, int.class);
+        Label cont = mm.label();
+        mm.param(1).ifFalse(cont);
+        // The species is first used in a branch, and it's used again after the branch.
+        mm.return_(vm.length().neg());
+        cont.here();
+        var sum = mm.var(int.class).set(0);
+        vm.loop(0, array.alength(), (i, mask) -> {
+            sum.inc(vm.reduce(vm.load(array, i, mask), "ADD", mask));
+        });
+        mm.return_(sum.add(vm.length()));
+        MethodHandle mh = mm.finish();
+
+        int length = -(int) mh.invoke(new int[0], true);
+        assertTrue(length > 0);
+        assertEquals(6 + length, (int) mh.invoke(new int[] {1, 2, 3}, false));
+    }
+
+    @Test
+    public void broken() {
+        MethodMaker mm = MethodMaker.begin(MethodHandles.lookup(), null, "_");
+        try {
+            VectorMaker.of(mm, short.class);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("Unsupported"));
+        }
+    }
+}
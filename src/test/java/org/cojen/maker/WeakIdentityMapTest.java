@@ -0,0 +1,114 @@
+/*
+ *  Copyright 2026 Cojen.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.cojen.maker;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * 
+ *
+ * @author Brian S O'Neill
+ */
+public class WeakIdentityMapTest {
+    public static void main(String[] args) throws Exception {
+        org.junit.runner.JUnitCore.main(WeakIdentityMapTest.class.getName());
+    }
+
+    @Test
+    public void replace() {
+        var map = new WeakIdentityMap<Key, String>();
+        var key = new Key();
+
+        assertNull(map.put(key, "b"));
+        assertEquals("b", map.put(key, "c"));
+        assertEquals("c", map.get(key));
+        assertNull(map.get(new Key()));
+    }
+
+    @Test
+    public void identity() {
+        var map = new WeakIdentityMap<String, String>();
+
+        var k1 = new String("a");
+        var k2 = new String("a");
+
+        map.put(k1, "b");
+        assertEquals("b", map.get(k1));
+        assertNull(map.get(k2));
+    }
+
+    @Test
+    public void remove() {
+        var map = new WeakIdentityMap<Key, String>();
+        var key = new Key();
+
+        assertFalse(map.remove(key, "a"));
+
+        map.put(key, "a");
+        assertFalse(map.remove(key, "b"));
+        assertEquals("a", map.get(key));
+        assertTrue(map.remove(key, "a"));
+        assertNull(map.get(key));
+        assertFalse(map.remove(key, "a"));
+
+        map.put(key, "c");
+        assertEquals("c", map.get(key));
+    }
+
+    @Test
+    public void rehash() {
+        var map = new WeakIdentityMap<Key, Integer>();
+        var keys = new Key[1000];
+
+        for (int i=0; i<keys.length; i++) {
+            Integer value = i;
+            map.put(keys[i] = new Key(), value);
+            if ((i & 1) != 0) {
+                assertFalse(map.remove(keys[i], Integer.valueOf(-1)));
+                assertTrue(map.remove(keys[i], value));
+            }
+        }
+
+        for (int i=0; i<keys.length; i++) {
+            if ((i & 1) != 0) {
+                assertNull(map.get(keys[i]));
+            } else {
+                assertEquals(i, (int) map.get(keys[i]));
+            }
+        }
+    }
+
+    @Test
+    public void putCleanup() {
+        var map = new WeakIdentityMap<Key, String>();
+
+        for (int i=0; i<10_000; i++) {
+            map.put(new Key(), "value");
+            if (i % 1000 == 0) {
+                System.gc();
+            }
+        }
+
+        var key = new Key();
+        map.put(key, "hello");
+        assertEquals("hello", map.get(key));
+    }
+
+    private static class Key {
+    }
+}